@@ -11,19 +11,25 @@
 package alahashesh.com.skyjumper;
 
 import android.app.Activity;
+import android.app.ActivityManager;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.media.AudioAttributes;
 import android.media.AudioManager;
 import android.media.SoundPool;
+import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.Debug;
 import android.os.IBinder;
 import android.os.SystemClock;
 import android.support.v4.content.ContextCompat;
+import android.util.Log;
+import android.view.Display;
 import android.view.animation.Animation;
 import android.view.animation.AnimationUtils;
 import android.view.MotionEvent;
@@ -37,10 +43,22 @@ import android.widget.TextView;
 import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.AdView;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
 import java.util.HashMap;
 
+import alahashesh.com.skyjumper.engine.FixedTimestep;
+import alahashesh.com.skyjumper.engine.FrameStats;
+import alahashesh.com.skyjumper.engine.SessionLog;
+import alahashesh.com.skyjumper.engine.SessionRecord;
 import alahashesh.com.skyjumper.game.GameThread;
 import alahashesh.com.skyjumper.game.GameViewPortrait;
+import alahashesh.com.skyjumper.game.SpriteCache;
+import alahashesh.com.skyjumper.game.TouchRouter;
 
 /**
  * The MainActivity is an activity that is responsible for driving the whole application.
@@ -78,7 +96,7 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     /* The game view. In a word this is the game*/
     GameViewPortrait gameViewPortrait;
 
-    /* The thread that runs the game*/
+    /* The thread that runs the game, it lives as long as the activity*/
     GameThread thread;
 
     /* The finish screen, which is displayed when the player loses*/
@@ -89,8 +107,8 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     TextView muteIcon;              /* Mute Icon (i.e. button)*/
     Button mRestartButton;          /* Restarts the game*/
 
-    /* A flag that indicates that the game is running*/
-    public static boolean isRunning = false;
+    /* Sends the touches to the game while it's running*/
+    private TouchRouter touchRouter;
 
     /* A flag that indicates that the game is started*/
     private boolean isStarted = false;
@@ -101,10 +119,41 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     /* Is the game visible to the user now?*/
     private boolean isCreated = false;
 
+    /* Simulation ticks per second, can be changed using the TICK_RATE preference*/
+    private int tickRate;
+
+    /* Display refresh rate, the game thread repaints the game at this rate*/
+    private float frameRate;
+
+    /* When the activity was created, used to measure the time until the game can be played*/
+    private long createTime;
+
+    /* Where the recorded games are saved, and how many of them are kept*/
+    private static final String REPLAYS_DIRECTORY = "replays";
+    private static final int MAX_REPLAYS = 100;
+
+    /* Where the session records are kept and summed up, and how big each log file can get*/
+    private static final String SESSIONS_FILE = "sessions.bin";
+    private static final String SESSIONS_SUMMARY_FILE = "sessions.csv";
+    private static final int MAX_SESSIONS_BYTES = 64 * 1024;
+
+    /* The log of the game sessions, written in the background one record after the other*/
+    private SessionLog sessionLog;
+
+    /* The device class and game version written in every session record*/
+    private int deviceClass;
+    private int appVersion;
+
+    /* When the current session started, and the GC count at that time*/
+    private long sessionStartTime;
+    private int sessionGcCount;
+
     @SuppressWarnings("deprecation")
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createTime = SystemClock.uptimeMillis();
+        initializeSessionLog();
 
         setContentView(R.layout.activity_main);
 
@@ -113,6 +162,8 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         SharedPreferences sharedPreferences =
                 getSharedPreferences("GAME_PREF", Context.MODE_PRIVATE);
         isMute = sharedPreferences.getBoolean("MUTE", false);
+        tickRate = sharedPreferences.getInt("TICK_RATE", FixedTimestep.DEFAULT_TICK_RATE);
+        frameRate = getWindowManager().getDefaultDisplay().getRefreshRate();
         if(isMute){
             if(android.os.Build.VERSION.SDK_INT < android.os.Build.VERSION_CODES.JELLY_BEAN) {
                 muteIcon.setBackgroundDrawable(ContextCompat.getDrawable(MainActivity.this, R.drawable.mute));
@@ -164,21 +215,15 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
                 /* Hide the start screen*/
                 startScreen.setVisibility(View.INVISIBLE);
 
-                /* Stop any running instances of the game*/
-                if (thread != null) {
-                    thread.stopGameThread();
-                    thread = null;
-                }
-
                 /* Run the game*/
-                thread = new GameThread(MainActivity.this);
-                thread.start();
+                startSession();
+                thread.resumeGameThread();
 
                 /* The game is started now*/
                 isStarted = true;
 
                 /* The game is running now*/
-                isRunning = true;
+                touchRouter.setEnabled(true);
 
 
             }
@@ -191,56 +236,22 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         pauseScreen.setOnTouchListener(new View.OnTouchListener() {
             @Override
             public boolean onTouch(View v, MotionEvent event) {
-                if (event.getAction() == MotionEvent.ACTION_DOWN) {
+                if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
 
                     /* Hide pause screen*/
                     pauseScreen.setVisibility(View.INVISIBLE);
 
-                    /* Stop any running instances of the game*/
-                    if (thread != null) {
-                        thread.stopGameThread();
-                        thread = null;
-                    }
-
-                    thread = new GameThread(MainActivity.this);
-                    thread.start();
+                    /* Continue the game where it was paused*/
+                    thread.resumeGameThread();
 
                     /* The game is now running*/
-                    isRunning = true;
-
-                }
-                if (event.getAction() == MotionEvent.ACTION_DOWN ||
-                        event.getAction() == MotionEvent.ACTION_UP) {
-
-                    /* now we must send the touch event to the main screen
-                     * Code borrowed from
-                     * http://stackoverflow.com/a/7001356
-                     * Many thanks to azdev
-                     */
-
-                    /* Obtain MotionEvent object*/
-                    long downTime = SystemClock.uptimeMillis();
-                    long eventTime = SystemClock.uptimeMillis() + 100;
-                    float x = event.getX();
-                    float y = event.getY();
-                    /* List of meta states found here:
-                     * developer.android.com/reference/android/view/KeyEvent.html#getMetaState()
-                     */
-
-                    int metaState = 0;
-                    MotionEvent motionEvent = MotionEvent.obtain(
-                            downTime,
-                            eventTime,
-                            event.getAction(),
-                            x,
-                            y,
-                            metaState
-                    );
-
-                    /* Dispatch touch event to the game view*/
-                    gameViewPortrait.dispatchTouchEvent(motionEvent);
+                    touchRouter.setEnabled(true);
                 }
-                return true;
+
+                /* The touch that resumes the game also steers the hero, the pause screen
+                 * covers the game so the event is passed as it is
+                 */
+                return touchRouter.onTouch(gameViewPortrait, event);
             }
         });
 
@@ -261,58 +272,38 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         mMaxScoreTextView = (TextView) findViewById(R.id.tv_finish_max_score);
 
         gameViewPortrait = (GameViewPortrait) findViewById(R.id.game_view);
+        touchRouter = new TouchRouter(gameViewPortrait);
 
         /* Some calls need to be executed in the Main Activity, therefore this callback is set*/
         gameViewPortrait.setCallBack(this);
+        gameViewPortrait.setTickRate(tickRate);
+        gameViewPortrait.setFrameRate(frameRate);
+        gameViewPortrait.setHudEnabled(getSharedPreferences("GAME_PREF", Context.MODE_PRIVATE)
+                .getBoolean("SHOW_HUD", false));
 
-        /* Send commands to the game according to the touch position*/
-        gameViewPortrait.setOnTouchListener(new View.OnTouchListener() {
-            @Override
-            public boolean onTouch(View v, MotionEvent event) {
-
-                /* Only the horizontal touch point is required*/
-                float x = event.getX();
-
-                /* Sends commands to the game if and only if it's running and not finished*/
-                boolean validFlag = isRunning && !gameViewPortrait.isFinished();
-
-                /* If x is horizontally greater that half of screen then we need to move the hero to
-                 * the right, else we must move it to the left.
-                 */
-                switch (event.getAction()) {
-
-                    /* Finger touched the screen*/
-                    case MotionEvent.ACTION_DOWN:
-                        if (validFlag) {
-                            if (x > v.getWidth() / 2) {
-                                gameViewPortrait.setDirection(GameViewPortrait.RIGHT);
-                            } else {
-                                gameViewPortrait.setDirection(GameViewPortrait.LEFT);
-                            }
-                        }
-                        break;
+        /* The game thread waits, paused, until the game is started.
+         * Its frames follow the display vsync unless the VSYNC preference is off
+         */
+        thread = new GameThread(this, tickRate, frameRate, getSupportedRefreshRates(),
+                getSharedPreferences("GAME_PREF", Context.MODE_PRIVATE).getBoolean("VSYNC", true));
+        thread.start();
 
-                    /* Finger left the screen*/
-                    case MotionEvent.ACTION_UP:
-                        if (validFlag) {
-                            gameViewPortrait.setDirection(GameViewPortrait.DOWN);
-                        }
-                        break;
-
-                    /* Finger is moving on the screen*/
-                    case MotionEvent.ACTION_MOVE:
-                        if (validFlag) {
-                            if (x > v.getWidth() / 2) {
-                                gameViewPortrait.setDirection(GameViewPortrait.RIGHT);
-                            } else {
-                                gameViewPortrait.setDirection(GameViewPortrait.LEFT);
-                            }
-                        }
-                        break;
-                }
+        /* A long click on the mute icon shows or hides the frame stats*/
+        muteIcon.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View v) {
+                boolean isHudEnabled = !gameViewPortrait.isHudEnabled();
+                gameViewPortrait.setHudEnabled(isHudEnabled);
+                SharedPreferences.Editor editor =
+                        getSharedPreferences("GAME_PREF", Context.MODE_PRIVATE).edit();
+                editor.putBoolean("SHOW_HUD", isHudEnabled);
+                editor.apply();
                 return true;
             }
         });
+
+        /* Send commands to the game according to the touch position*/
+        gameViewPortrait.setOnTouchListener(touchRouter);
     }
 
     /* Detect first run*/
@@ -327,6 +318,14 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        /* The cached sprites can be loaded again*/
+        SpriteCache.trimMemory(level);
+    }
+
     /* Avoid destroying the game when pressing the back button*/
     @Override
     public void onBackPressed() {
@@ -338,14 +337,14 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     protected void onPause() {
         super.onPause();
 
-        /* When pausing we must stop the, stop the music and display the pause screen*/
-        isRunning = false;
+        /* When pausing we must pause the game, stop the music and display the pause screen.
+         * The game thread waits until the pause screen resumes it
+         */
+        touchRouter.setEnabled(false);
         if (mServ != null) {
             mServ.pauseMusic();
         }
-        if (thread != null) {
-            thread.stopGameThread();
-        }
+        thread.pauseGameThread();
 
         /* Display the pause screen if and only if the game is started and not finished*/
         if (isStarted && !gameViewPortrait.isFinished()) {
@@ -360,14 +359,10 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
 
         /* If a system call causes the game to pause then restart it*/
         /*if(System.currentTimeMillis() - pauseTime < 300){
-            if(thread != null){
-                thread.stopGameThread();
-            }
             pauseScreen.setVisibility(View.INVISIBLE);
             *//* Run the game*//*
-            thread = new GameThread(MainActivity.this);
-            thread.start();
-            isRunning = true;
+            thread.resumeGameThread();
+            touchRouter.setEnabled(true);
         }*/
 
         /* When Resuming we must restart the music.
@@ -392,6 +387,9 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     protected void onDestroy() {
         super.onDestroy();
 
+        /* Stop the game thread, the game isn't updated after this*/
+        thread.shutdown();
+
         /* When the game finishes we must stop the music service*/
         if (mServ != null) {
             mServ.stopMusic();
@@ -401,13 +399,9 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
     }
 
     @Override
-    public boolean update() {
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                gameViewPortrait.invalidate();
-            }
-        });
+    public boolean update(int ticks, float alpha, long tickTime) {
+        /* Runs on the game thread, the game draws itself directly on its surface*/
+        gameViewPortrait.drawFrame(ticks, alpha, tickTime);
         if (!gameViewPortrait.isFinished()) {
             return true;
         } else {
@@ -421,6 +415,31 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         }
     }
 
+    @Override
+    public void onFrameRateChanged(float frameRate) {
+        /* Runs on the game thread, the missed frames are counted against the new rate*/
+        gameViewPortrait.setFrameRate(frameRate);
+    }
+
+    /**
+     * @return The refresh rates of the display modes, empty before Lollipop
+     */
+    @SuppressWarnings("deprecation")
+    private float[] getSupportedRefreshRates() {
+        Display display = getWindowManager().getDefaultDisplay();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            Display.Mode[] modes = display.getSupportedModes();
+            float[] rates = new float[modes.length];
+            for (int i = 0; i < modes.length; i++) {
+                rates[i] = modes[i].getRefreshRate();
+            }
+            return rates;
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            return display.getSupportedRefreshRates();
+        }
+        return new float[0];
+    }
+
     /**
      * Finishes the game.
      */
@@ -445,11 +464,160 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         mScoreTextView.setText(getString(R.string.integer_place_holder, score));
         mMaxScoreTextView.setText(getString(R.string.integer_place_holder, maxScore));
 
+        /* Keep the game so that it can be replayed*/
+        saveRecording();
+        finishSession(score);
+
         /* Reload Google ads*/
         AdRequest adRequest = new AdRequest.Builder().build();
         mAdView.loadAd(adRequest);
     }
 
+    /**
+     * Saves the recording of the last game in the replays directory.<br>
+     * Only the latest MAX_REPLAYS recordings are kept. The files are written in the background,
+     * on the same executor as the session log.
+     */
+    private void saveRecording() {
+        final byte[] recording = gameViewPortrait.getRecording();
+        if (recording == null) {
+            return;
+        }
+        final File directory = new File(getFilesDir(), REPLAYS_DIRECTORY);
+        final String name = System.currentTimeMillis() + ".sjr";
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                writeRecording(directory, name, recording);
+            }
+        });
+    }
+
+    /**
+     * Writes a recording and deletes the oldest ones, runs in the background.
+     *
+     * @param directory The replays directory
+     * @param name      The file name of the recording
+     * @param recording The recorded game
+     */
+    private static void writeRecording(File directory, String name, byte[] recording) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(new File(directory, name));
+            out.write(recording);
+        } catch (IOException e) {
+            Log.d("REPLAYS", "Error while saving the game");
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.d("REPLAYS", "Error while closing the game file");
+                }
+            }
+        }
+
+        /* The names are times, so the oldest recordings come first*/
+        File[] files = directory.listFiles();
+        if (files != null && files.length > MAX_REPLAYS) {
+            Arrays.sort(files);
+            for (int i = 0; i < files.length - MAX_REPLAYS; i++) {
+                if (!files[i].delete()) {
+                    Log.d("REPLAYS", "Error while deleting " + files[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the device class and the game version, which are the same for every session.
+     */
+    private void initializeSessionLog() {
+        sessionLog = new SessionLog(new File(getFilesDir(), SESSIONS_FILE), MAX_SESSIONS_BYTES);
+
+        ActivityManager activityManager = (ActivityManager) getSystemService(Context.ACTIVITY_SERVICE);
+        boolean isLowRam = Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && activityManager.isLowRamDevice();
+        deviceClass = SessionRecord.classifyDevice(activityManager.getMemoryClass(),
+                Runtime.getRuntime().availableProcessors(), isLowRam);
+        try {
+            appVersion = getPackageManager().getPackageInfo(getPackageName(), 0).versionCode;
+        } catch (PackageManager.NameNotFoundException e) {
+            appVersion = 0;
+        }
+    }
+
+    /**
+     * Starts measuring a game session, call it right before the game thread is resumed.
+     */
+    private void startSession() {
+        sessionStartTime = SystemClock.elapsedRealtime();
+        sessionGcCount = getGcCount();
+        gameViewPortrait.getFrameStats().reset();
+    }
+
+    /**
+     * Writes the record of the finished session to the session log, and sums up the log
+     * in the summary file that can be exported.<br>
+     * The files are written in the background, one session after the other.
+     *
+     * @param score The final score
+     */
+    private void finishSession(int score) {
+        FrameStats stats = gameViewPortrait.getFrameStats();
+        int gcCount = getGcCount();
+        final SessionRecord record = new SessionRecord(System.currentTimeMillis(), appVersion,
+                Build.VERSION.SDK_INT, deviceClass,
+                (int) (SystemClock.elapsedRealtime() - sessionStartTime),
+                (int) stats.getFrames(),
+                (int) (stats.getAverageFrameTime() / 1000),
+                (int) (stats.getWorstFrameTime() / 1000),
+                (int) stats.getMissedFrames(),
+                gcCount == SessionRecord.UNKNOWN ? SessionRecord.UNKNOWN : gcCount - sessionGcCount,
+                (int) gameViewPortrait.getGeneratedWalls(), score);
+        final File summaryFile = new File(getFilesDir(), SESSIONS_SUMMARY_FILE);
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                Writer writer = null;
+                try {
+                    sessionLog.append(record);
+                    writer = new FileWriter(summaryFile);
+                    sessionLog.writeSummary(writer);
+                } catch (IOException e) {
+                    Log.d("SESSIONS", "Error while saving the session");
+                } finally {
+                    if (writer != null) {
+                        try {
+                            writer.close();
+                        } catch (IOException e) {
+                            Log.d("SESSIONS", "Error while closing the summary file");
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The number of garbage collections since the game was started,
+     * or SessionRecord.UNKNOWN before Marshmallow
+     */
+    private static int getGcCount() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return SessionRecord.UNKNOWN;
+        }
+        String count = Debug.getRuntimeStat("art.gc.gc-count");
+        try {
+            return count != null ? Integer.parseInt(count) : SessionRecord.UNKNOWN;
+        } catch (NumberFormatException e) {
+            return SessionRecord.UNKNOWN;
+        }
+    }
+
     /**
      * Restarts the game.
      */
@@ -457,14 +625,10 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
 
         /* Restart the game*/
         gameViewPortrait.restartGame();
+        startSession();
 
-        /* Restart the thread*/
-        if (thread != null) {
-            thread.stopGameThread();
-            thread = null;
-        }
-        thread = new GameThread(this);
-        thread.start();
+        /* Run the game thread again, it paused itself when the player lost*/
+        thread.resumeGameThread();
 
         /*Pause Google ads*/
         mAdView.pause();
@@ -473,7 +637,7 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         finishScreen.setVisibility(View.INVISIBLE);
 
         /* The game is now running*/
-        isRunning = true;
+        touchRouter.setEnabled(true);
     }
 
     /**
@@ -562,15 +726,27 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
         }
     }
 
+    /**
+     * The game assets are loaded, the game can be played now.
+     */
+    @Override
+    public void onGameReady() {
+        Log.d("STARTUP", "Game ready in " + (SystemClock.uptimeMillis() - createTime) + " ms");
+
+        /* Let the system record the time to fully drawn in its startup metrics.
+         * On KitKat this needs the UPDATE_DEVICE_STATS permission, so it's only done from Lollipop
+         */
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            reportFullyDrawn();
+        }
+    }
+
     /**
      * Changes current game view theme by changing the view background.
      */
     @Override
     public void changeTheme() {
-        if (thread != null) {
-            thread.stopGameThread();
-            thread = null;
-        }
+        thread.pauseGameThread();
 
         /* Load fade out animation*/
         Animation fadeOut = AnimationUtils.loadAnimation(MainActivity.this, R.anim.fade_out);
@@ -594,14 +770,8 @@ public class MainActivity extends Activity implements GameThread.GameThreadCallB
                     @Override
                     public void onAnimationEnd(Animation animation) {
 
-                        /*start the game when the animation finishes*/
-                        if (thread == null) {
-                            thread.stopGameThread();
-                            thread = null;
-                        }
-
-                        thread = new GameThread(MainActivity.this);
-                        thread.start();
+                        /*continue the game when the animation finishes*/
+                        thread.resumeGameThread();
                     }
 
                     @Override
@@ -0,0 +1,119 @@
+/*
+ * DigitGlyphs
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.game;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import alahashesh.com.skyjumper.engine.Digits;
+
+/**
+ * The DigitGlyphs is a Class that draws numbers from pre-rendered digits.<br>
+ * The ten digits are rendered once, side by side, into an alpha only bitmap. A number is then
+ * drawn from an int by copying the bitmap part of each of its digits, tinted with the color
+ * of the paint, so drawing a number needs no String and no text layout and allocates nothing.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class DigitGlyphs {
+
+    private final Bitmap bitmap;                /* The digits, side by side*/
+    private final int[] lefts = new int[10];    /* Where each digit starts in the bitmap*/
+    private final int[] widths = new int[10];   /* The advance width of each digit*/
+    private final int top;                      /* Top of the digits relative to the baseline, negative*/
+    private final int bottom;                   /* Bottom of the digits relative to the baseline*/
+
+    /* The digits of the number being drawn, and the parts of the bitmap that are copied*/
+    private final int[] digits = new int[Digits.MAX_DIGITS];
+    private final Rect source = new Rect();
+    private final Rect destination = new Rect();
+
+    /**
+     * Renders the digits.
+     *
+     * @param paint The paint that has the typeface and the text size of the numbers
+     */
+    public DigitGlyphs(Paint paint) {
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        top = metrics.top;
+        bottom = metrics.bottom;
+
+        /* Digits are placed by their advance widths, the same way text places them*/
+        char[] text = "0123456789".toCharArray();
+        float[] advances = new float[text.length];
+        paint.getTextWidths(text, 0, text.length, advances);
+        int x = 0;
+        for (int i = 0; i < 10; i++) {
+            lefts[i] = x;
+            widths[i] = (int) Math.ceil(advances[i]);
+            x += widths[i];
+        }
+
+        bitmap = Bitmap.createBitmap(x, bottom - top, Bitmap.Config.ALPHA_8);
+        Canvas canvas = new Canvas(bitmap);
+        Paint glyphPaint = new Paint(paint);
+        glyphPaint.setColor(Color.WHITE);
+        for (int i = 0; i < 10; i++) {
+            canvas.drawText(text, i, 1, lefts[i], -top, glyphPaint);
+        }
+    }
+
+    /**
+     * @return Top of the digits relative to the baseline, negative
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return Bottom of the digits relative to the baseline
+     */
+    public int getBottom() {
+        return bottom;
+    }
+
+    /**
+     * Measures a number.
+     *
+     * @param value A non negative number
+     * @return The width of the number in pixels
+     */
+    public int measure(int value) {
+        return Digits.measure(value, widths);
+    }
+
+    /**
+     * Draws a number.
+     *
+     * @param canvas   The canvas to draw on
+     * @param value    A non negative number
+     * @param x        The x coordinate of the left of the number
+     * @param baseline The y coordinate of the baseline of the number
+     * @param paint    The paint whose color the digits are drawn with
+     */
+    public void draw(Canvas canvas, int value, int x, int baseline, Paint paint) {
+
+        /* The digits come the last first*/
+        int count = Digits.split(value, digits);
+        for (int i = count - 1; i >= 0; i--) {
+            int digit = digits[i];
+            source.set(lefts[digit], 0, lefts[digit] + widths[digit], bitmap.getHeight());
+            destination.set(x, baseline + top, x + widths[digit], baseline + bottom);
+            canvas.drawBitmap(bitmap, source, destination, paint);
+            x += widths[digit];
+        }
+    }
+}
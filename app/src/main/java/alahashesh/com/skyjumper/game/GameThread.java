@@ -10,12 +10,34 @@
  */
 package alahashesh.com.skyjumper.game;
 
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
+import android.view.Choreographer;
+
+import alahashesh.com.skyjumper.engine.FixedTimestep;
+import alahashesh.com.skyjumper.engine.RefreshRateDetector;
 
 /**
- * The GameThread is a Thread that makes the game view repaint itself.<br>
- * Right now the repainting is done every 17 milliseconds, which should run
- * the game at 60 FPS.
+ * The GameThread is a Thread that drives the game.<br>
+ * The game logic runs at a fixed tick rate (see {@link FixedTimestep}), while the thread
+ * wakes up once per display frame and asks the game to simulate the ticks that are due
+ * and to repaint itself.<br><br>
+ *
+ * One thread lives as long as the activity. It's either running, paused or stopped:
+ * it's created paused, {@link #resumeGameThread()} starts (or restarts) the game and
+ * {@link #pauseGameThread()} pauses it, the thread also pauses itself when the player loses.
+ * A paused thread waits without using the CPU and doesn't catch up with the paused time.
+ * {@link #shutdown()} stops the thread for good and waits until it ends.<br><br>
+ *
+ * The frames are either timed by sleeping until the next frame deadline, or, from Jelly Bean,
+ * by the display itself: the thread runs a Looper and the game is updated from Choreographer
+ * frame callbacks, using the vsync times. Sleeping can't follow the display exactly, so every
+ * now and then a display frame gets two game frames or none, vsync frames don't have this
+ * problem. In vsync mode the refresh rate is also followed from the frame times, among the
+ * rates that the display supports (see {@link RefreshRateDetector}).
  *
  * @author Ala' Hashesh
  * @version 1.0
@@ -26,30 +48,280 @@ public class GameThread extends Thread {
     /* Some calls need to be send back to the main Activity*/
     GameThreadCallBack mCallbacks;
 
-    /* A flag that must be true for the thread to run*/
-    private boolean isRunning = true;
+    /* The default number of frames per second, used when the display refresh rate is unknown*/
+    public static final int DEFAULT_FRAME_RATE = 60;
+
+    /* Thread states*/
+    public static final int RUNNING = 0;
+    public static final int PAUSED = 1;
+    public static final int STOPPED = 2;
+
+    /* How long shutdown waits for the thread to end, in milliseconds*/
+    private static final long JOIN_TIMEOUT = 1000;
+
+    /* The state is changed under the lock, and the thread waits on it while it's paused*/
+    private final Object lock = new Object();
+    private volatile int state = PAUSED;
+
+    /* Counts the resume calls, so that a resume isn't lost when the player loses at the same time*/
+    private int resumes;
+
+    /* Converts the elapsed time into simulation ticks*/
+    private final FixedTimestep timestep;
+
+    /* The time between two frames in nanoseconds, when the frames aren't timed by vsync*/
+    private final long frameNanos;
+
+    /* Are the frames timed by the display vsync?*/
+    private final boolean isVsyncEnabled;
+
+    /* In vsync mode, the handler of the thread Looper and the frame callbacks, set under the lock*/
+    private Handler handler;
+    private VsyncFrames vsyncFrames;
+
+    /* The resume count when the current game frames started, only used by the thread*/
+    private int frameResumes;
+
+    /* Follows the refresh rate from the vsync times*/
+    private final RefreshRateDetector refreshRateDetector;
+
+    public GameThread(GameThreadCallBack mCallbacks) {
+        this(mCallbacks, FixedTimestep.DEFAULT_TICK_RATE, DEFAULT_FRAME_RATE, new float[0], false);
+    }
 
     /**
-     * Stops the thread.
+     * Constructs a new, paused, game thread.
+     *
+     * @param mCallbacks The callback that updates the game
+     * @param tickRate   Simulation ticks per second
+     * @param frameRate      Frames per second, usually the display refresh rate
+     * @param supportedRates The refresh rates that the display supports, may be empty
+     * @param useVsync       true to time the frames by the display vsync, only used from Jelly Bean
      */
-    public void stopGameThread() {
-        isRunning = false;
+    public GameThread(GameThreadCallBack mCallbacks, int tickRate, float frameRate, float[] supportedRates,
+                      boolean useVsync) {
+        super("GameThread");
+        this.mCallbacks = mCallbacks;
+        isVsyncEnabled = useVsync && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+        timestep = new FixedTimestep(tickRate, FixedTimestep.DEFAULT_MAX_CATCH_UP_TICKS);
+        if (frameRate <= 0) {
+            frameRate = DEFAULT_FRAME_RATE;
+        }
+        frameNanos = (long) (1000000000L / frameRate);
+        refreshRateDetector = new RefreshRateDetector(frameRate, supportedRates);
     }
 
-    public GameThread(GameThreadCallBack mCallbacks) {
-        this.mCallbacks = mCallbacks;
+    /**
+     * Runs the game, if the thread is paused.
+     */
+    public void resumeGameThread() {
+        synchronized (lock) {
+            resumes++;
+            if (state == PAUSED) {
+                state = RUNNING;
+                lock.notifyAll();
+                if (handler != null) {
+                    handler.post(vsyncFrames);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pauses the game before the next frame, if the thread is running.
+     */
+    public void pauseGameThread() {
+        synchronized (lock) {
+            if (state == RUNNING) {
+                state = PAUSED;
+            }
+        }
+    }
+
+    /**
+     * Stops the thread and waits until the current frame is done (for JOIN_TIMEOUT at most),
+     * so that the game isn't updated after this returns.
+     */
+    public void shutdown() {
+        synchronized (lock) {
+            state = STOPPED;
+            lock.notifyAll();
+            if (handler != null) {
+                handler.getLooper().quit();
+            }
+        }
+        interrupt();
+        if (currentThread() == this) {
+            return;
+        }
+        try {
+            join(JOIN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Log.d("GAMETHREAD", "Error while waiting for the thread to end");
+        }
+    }
+
+    /**
+     * @return One of RUNNING, PAUSED or STOPPED
+     */
+    public int getGameThreadState() {
+        return state;
+    }
+
+    /**
+     * @return true if the frames are timed by the display vsync, false otherwise
+     */
+    public boolean isVsyncEnabled() {
+        return isVsyncEnabled;
     }
 
     @Override
     public void run() {
-        while (isRunning) {
-            try {
-                sleep(17);
-            } catch (InterruptedException e) {
-                Log.d("GAMETHREAD", "Error while sleeping");
+        if (isVsyncEnabled) {
+            runVsyncFrames();
+        } else {
+            runSleepingFrames();
+        }
+    }
+
+    /**
+     * Runs the frames from Choreographer callbacks until the thread is stopped.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void runVsyncFrames() {
+        Looper.prepare();
+        synchronized (lock) {
+            if (state == STOPPED) {
+                return;
             }
-            if (!mCallbacks.update()) {
-                break;
+            handler = new Handler();
+            vsyncFrames = new VsyncFrames();
+            if (state == RUNNING) {
+                handler.post(vsyncFrames);
+            }
+        }
+        Looper.loop();
+    }
+
+    /**
+     * Runs the frames by sleeping until each frame deadline, until the thread is stopped.
+     */
+    private void runSleepingFrames() {
+        long nextFrame = 0;
+        while (true) {
+
+            /* Wait while paused, and start counting again when resumed*/
+            if (state != RUNNING) {
+                synchronized (lock) {
+                    if (state == PAUSED) {
+                        while (state == PAUSED) {
+                            try {
+                                lock.wait();
+                            } catch (InterruptedException e) {
+                                /* Stopped while paused, the loop checks the state*/
+                            }
+                        }
+                        nextFrame = 0;
+                    }
+                    if (state == STOPPED) {
+                        return;
+                    }
+                    frameResumes = resumes;
+                }
+            }
+            if (nextFrame == 0) {
+
+                /* The paused time isn't simulated*/
+                nextFrame = System.nanoTime();
+                timestep.reset();
+                timestep.advance(nextFrame);
+                continue;
+            }
+
+            /* Sleep until the next frame deadline. Deadlines are absolute so that
+             * the time spent in update doesn't make the frames drift.
+             */
+            nextFrame += frameNanos;
+            long now = System.nanoTime();
+            if (nextFrame < now) {
+                /* We are late, don't try to catch up with the lost frames*/
+                nextFrame = now;
+            } else {
+                long sleepNanos = nextFrame - now;
+                try {
+                    sleep(sleepNanos / 1000000L, (int) (sleepNanos % 1000000L));
+                } catch (InterruptedException e) {
+                    /* Stopped while sleeping*/
+                    continue;
+                }
+            }
+
+            /* Don't update the game if it was paused while sleeping*/
+            if (state != RUNNING) {
+                continue;
+            }
+            updateGame(System.nanoTime());
+        }
+    }
+
+    /**
+     * Updates the game for one frame, and pauses the thread when the player loses.
+     *
+     * @param frameTime The time of the frame, System.nanoTime() based
+     */
+    private void updateGame(long frameTime) {
+        int ticks = timestep.advance(frameTime);
+        if (!mCallbacks.update(ticks, timestep.getAlpha(), timestep.getTickTime())) {
+
+            /* The player lost, wait for the next game unless it was already restarted*/
+            synchronized (lock) {
+                if (state == RUNNING && resumes == frameResumes) {
+                    state = PAUSED;
+                }
+                frameResumes = resumes;
+            }
+        }
+    }
+
+    /**
+     * The VsyncFrames is a Class that runs the game frames from Choreographer callbacks.<br>
+     * Running it (it's posted to the thread Looper on every resume) starts the frames, and every
+     * frame asks for the next one as long as the thread is running.
+     * It's only loaded from Jelly Bean.
+     */
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private class VsyncFrames implements Runnable, Choreographer.FrameCallback {
+
+        private final Choreographer choreographer = Choreographer.getInstance();
+
+        @Override
+        public void run() {
+            synchronized (lock) {
+                if (state != RUNNING) {
+                    return;
+                }
+                frameResumes = resumes;
+            }
+
+            /* The paused time isn't simulated, a pending frame is replaced so frames aren't doubled*/
+            timestep.reset();
+            refreshRateDetector.reset();
+            choreographer.removeFrameCallback(this);
+            choreographer.postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (state != RUNNING) {
+                return;
+            }
+            if (refreshRateDetector.onFrame(frameTimeNanos)) {
+                mCallbacks.onFrameRateChanged(refreshRateDetector.getFrameRate());
+            }
+            updateGame(frameTimeNanos);
+            refreshRateDetector.onFrameEnd(System.nanoTime());
+            if (state == RUNNING) {
+                choreographer.postFrameCallback(this);
             }
         }
     }
@@ -66,9 +338,24 @@ public class GameThread extends Thread {
 
         /**
          * Make the game updates it self.
+         * @param ticks
+         *          the number of simulation ticks that are due
+         * @param alpha
+         *          how far we are between the last tick and the next one, in the range [0, 1)
+         * @param tickTime
+         *          the time of the last due tick (System.nanoTime() based), the ticks before it
+         *          are one tick length apart
          * @return
          *          true if the player hasn't lost yet, false otherwise.
          */
-        boolean update();
+        boolean update(int ticks, float alpha, long tickTime);
+
+        /**
+         * Called on the game thread when the display refresh rate changes
+         * (only when the frames are timed by vsync).
+         * @param frameRate
+         *          the new refresh rate in frames per second
+         */
+        void onFrameRateChanged(float frameRate);
     }
 }
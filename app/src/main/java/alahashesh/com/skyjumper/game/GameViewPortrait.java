@@ -11,80 +11,51 @@
 package alahashesh.com.skyjumper.game;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.PorterDuff;
 import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
 import android.util.AttributeSet;
-import android.util.DisplayMetrics;
 import android.util.Log;
-import android.view.View;
+import android.view.TextureView;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 
 import alahashesh.com.skyjumper.MainActivity;
 import alahashesh.com.skyjumper.R;
+import alahashesh.com.skyjumper.engine.CollisionMask;
+import alahashesh.com.skyjumper.engine.DifficultyProfile;
+import alahashesh.com.skyjumper.engine.FixedTimestep;
+import alahashesh.com.skyjumper.engine.FrameStats;
+import alahashesh.com.skyjumper.engine.GameWorld;
+import alahashesh.com.skyjumper.engine.InputQueue;
+import alahashesh.com.skyjumper.engine.InputRecorder;
+import alahashesh.com.skyjumper.engine.Walls;
 
 /**
- * The GameViewPortrait is a View that creates the whole game logic.<br>
+ * The GameViewPortrait is a TextureView that draws the game.<br>
+ * The game state and logic live in a {@link GameWorld}, this view only loads the sprites
+ * and draws the world. The game is simulated and drawn from the game thread by locking
+ * the view surface directly, so the UI thread is left to the start, pause and finish screens.
  *
  * @author Ala' Hashesh
  * @version 1.0
  * @since 2015-08-30
  */
-public class GameViewPortrait extends View {
+public class GameViewPortrait extends TextureView implements TextureView.SurfaceTextureListener,
+        GameWorld.GameWorldCallBack {
 
     /* Directions definition*/
-    public static final int DOWN = 0;
-    public static final int LEFT = 1;
-    public static final int RIGHT = 2;
+    public static final int DOWN = GameWorld.DOWN;
+    public static final int LEFT = GameWorld.LEFT;
+    public static final int RIGHT = GameWorld.RIGHT;
 
-    /* The number of steps that the hero moves with each frame in dp*/
-    private int HERO_SPEED = 7;
-
-    /* The number of steps that the walls move with each frame in dp*/
-    private int WALLS_SPEED = 5;
-
-    /* The number of steps that the hole move with each frame in dp*/
-    private int HOLES_SPEED = 1;
-
-    /* After how much walls you need a moving one?
-    * for example if this is set to 1 then all walls will be moving,
-    * if it is set to 2 then half the walls will be moving*/
-    private int MOVING_HOLES_TIME = 5;     /*After 4 walls a moving one will come*/
-
-    /* Each wall thickness in dp*/
-    private int THICKNESS = 10;
-
-    /*
-     * For now this variable is used to calculate the width of the hole (i.e. its size)
-     * holeSize = (Screen width) / COLUMNS_NUMBER
-     */
-    private int COLUMNS_NUMBER = 5;
-
-    /* The distance between walls and can be calculated as follows:
-     * ((distance - (size of hole)) / HERO_SPEED ) * WALLS_SPEED + max(THICKNESS, hero height)
-     * distance here is the width of the screen.
-     * This calculation ensures that the hero is capable of passing the wall
-     */
-    private int WALLS_MARGIN;
-
-    /*
-     * This is the maximum Height that the hero is allowed to get down (i.e. the hero y coordinate)
-     * For now it's (screen height)/4
-     */
-    private int MAX_HEIGHT;
-
-    /* Width for now is the hole size divided by 3.5*/
-    private int WIDTH;
-    private int HEIGHT = 25;                /*in dp*/
-
-    private int unitsToMove;                /*in dp*/
-    private int wallsUnitsToMove;           /*in dp*/
-    private int holesUnitsToMove;           /*in dp*/
-
-    private long numberOfGeneratedWalls;
+    /* Simulation ticks per second*/
+    private int tickRate = FixedTimestep.DEFAULT_TICK_RATE;
 
     /*
      * Some actions must be executed at Main Activity
@@ -94,73 +65,41 @@ public class GameViewPortrait extends View {
 
     /*
      * isReady will be set when the View get initialized
-     * (i.e. when the width and height of the screen are known)
-     */
-    private boolean isReady;
-
-    /*
-     * isWallPassed will be true if we successfully passed a wall, else
-     * it will be false indicating that the hero hit the wall
-     */
-    private boolean isWallPassed = true;
-
-    /*
-     * This flag indicates whether we lost the game or not.
-     * Although we can use isWallPassed to do this, adding this flag
-     * make the logic mor clear
-     */
-    private boolean isLost;
-
-    /*
-     * The direction in which the hero is going.
-     * It can be either left, right or down
-     */
-    private int direction;
-
-    /* A list where we store all the walls*/
-    private ArrayList<Wall> wallsList;
-
-    /* In what index can we add a new wall?
-     * This variable answers this question, moreover using this variable
-     * and adding a limit for the number of walls currently visible on the screen
-     * then it's possible to make the list circular.
-     * (i.e. when a wall reaches the top, it's no longer needed) and we can use its place
-     * to store a new wall object
+     * (i.e. when the width and height of the screen are known and the assets are loaded)
      */
-    private int indexInWallList;
+    private volatile boolean isReady;
 
-    /* Limit for the number of walls allowed on the screen.
-     * The calculation for this goes as follows:
-     *      Height/WALLS_MARGIN
-     */
-    private int numberOfWalls;
+    /* The assets are loaded on a background thread, this is set while it runs*/
+    private boolean isLoading;
 
-    /* The index of the top wall that the hero will either pass or hit*/
-    private int topWallIndex;
+    /* The game itself*/
+    private GameWorld world;
 
-    /* Which way is the hero currently looking?
-     * The answer can be either left, right, or down.
-     * We can use the direction variable for this, but this adds little clarity.
-     */
-    private int heroFaceDirection;
+    /* Records every game so that it can be replayed*/
+    private final InputRecorder recorder = new InputRecorder();
 
     /*
-     * A list that holds the hero bitmaps.
-     * For now their are three bitmaps, one for each direction.
+     * The direction changes, from the UI thread to the game thread.
+     * Changes made before the current game started are dropped.
      */
-    private ArrayList<Bitmap> heroBitmaps;
+    private final InputQueue input = new InputQueue();
+    private volatile long gameStartTime;
+
+    /* The time of the oldest applied direction change that isn't on the screen yet, or 0*/
+    private long inputTime;
 
     /*
-     * A list that holds the wall bitmaps.
-     * For now their are two bitmaps, one for each direction.
+     * All the sprites of the game in one bitmap.
+     * For now their are three hero sprites, one for each direction (the sprite index is the direction),
+     * and two wall sprites, one for each side.
      */
-    private ArrayList<Bitmap> wallBitmaps;
+    private SpriteAtlas atlas;
+    private static final int SPRITE_WALL_LEFT = 3;
+    private static final int SPRITE_WALL_RIGHT = 4;
 
-    private int x;                          /* Hero x coordinate*/
-    private int y;                          /* Hero y coordinate*/
-    private int holeSize;                   /* Hole size*/
-    private int score = 0;                  /* current score*/
-    CenterMessage scoreMessage;             /* The score message*/
+    /* The atlas is shared by the game views, so each view has its own Rects to draw it with*/
+    private final Rect spriteSource = new Rect();
+    private final Rect spriteDestination = new Rect();
 
     /*
      * The paint object used to paint and stylish the hero.
@@ -174,6 +113,26 @@ public class GameViewPortrait extends View {
      */
     private Paint wallPaint;
 
+    /*
+     * The score is drawn from pre-rendered digits, centered on the screen.
+     * Its place is computed again only when it changes.
+     */
+    private DigitGlyphs scoreGlyphs;
+    private Paint scorePaint;                   /* The color of the score*/
+    private int scoreBaseline;                  /* The y coordinate of the score baseline*/
+    private int drawnScore;                     /* The score that is drawn*/
+    private final Rect scoreRect = new Rect();  /* Where the score is on the screen*/
+    private volatile boolean isScoreChanged;
+
+    /* Measures every frame when the HUD is shown, and the HUD that shows the results*/
+    private final FrameStats stats = new FrameStats();
+    private PerformanceHud hud;
+    private volatile boolean isHudEnabled;
+
+    /* The positions of the current frame*/
+    private int heroX;
+    private int wallsOffset;
+
     /**
      * Sets the listener.
      *
@@ -189,30 +148,219 @@ public class GameViewPortrait extends View {
      * @return true if the game is finished, false otherwise
      */
     public boolean isFinished() {
-        return isLost;
+        return isReady && world.isLost();
     }
 
     /**
-     * Sets the direction that the hero is going to.
+     * Returns the recording of the last game.<br>
+     * This must be called after the game is finished and before it's restarted.
+     *
+     * @return The log of the game, or null if the game isn't finished
+     */
+    public byte[] getRecording() {
+        return isFinished() && recorder.isFinished() ? recorder.toByteArray() : null;
+    }
+
+    /**
+     * Sets the direction that the hero is going to, now.
      *
      * @param direction Hero direction
      */
     public void setDirection(int direction) {
-        this.direction = direction;
-        if (direction == LEFT) {
-            heroFaceDirection = LEFT;
-        } else if (direction == RIGHT) {
-            heroFaceDirection = RIGHT;
-        } else if (direction == DOWN) {
-            heroFaceDirection = DOWN;
+        setDirection(direction, System.nanoTime());
+    }
+
+    /**
+     * Sets the direction that the hero is going to, from the given time.<br>
+     * This is called from the UI thread, the change is applied by the game thread on the first
+     * tick that isn't earlier than the time.
+     *
+     * @param direction Hero direction
+     * @param time      When the direction changed, System.nanoTime() based
+     */
+    public void setDirection(int direction, long time) {
+        if (isReady) {
+
+            /* A time from the future would hold the change back*/
+            input.offer(Math.min(time, System.nanoTime()), direction);
+        }
+    }
+
+    /**
+     * Sets the number of simulation ticks per second.<br>
+     * This must be called before the view is laid out.
+     *
+     * @param tickRate Ticks per second
+     */
+    public void setTickRate(int tickRate) {
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * Sets the display refresh rate, frames that take longer than one and a half
+     * refresh periods are counted as missed.
+     *
+     * @param frameRate Frames per second
+     */
+    public void setFrameRate(float frameRate) {
+        if (frameRate > 0) {
+            stats.setFrameBudget((long) (1000000000L / frameRate));
+        }
+    }
+
+    /**
+     * Shows or hides the frame stats HUD. The phases are only timed while it's shown.
+     *
+     * @param isEnabled true to show the HUD, false to hide it
+     */
+    public void setHudEnabled(boolean isEnabled) {
+        stats.setEnabled(isEnabled);
+        isHudEnabled = isEnabled;
+    }
+
+    /**
+     * @return true if the frame stats HUD is shown, false otherwise
+     */
+    public boolean isHudEnabled() {
+        return isHudEnabled;
+    }
+
+    /**
+     * Simulates the ticks that are due and draws the game on the view surface.<br>
+     * This is called from the game thread.
+     *
+     * @param ticks    The number of ticks that are due
+     * @param alpha    How far we are between the last tick and the next one, in the range [0, 1)
+     * @param tickTime The time of the last due tick, System.nanoTime() based
+     */
+    public synchronized void drawFrame(int ticks, float alpha, long tickTime) {
+        if (!isReady) {
+            return;
+        }
+        stats.frame(System.nanoTime());
+        draw(ticks, alpha, tickTime);
+    }
+
+    /**
+     * Draws the current state of the game again, from the UI thread.<br>
+     * It's not a game frame, so it isn't counted in the frame stats.
+     */
+    private synchronized void redraw() {
+        if (isReady) {
+            draw(0, 1, 0);
+        }
+    }
+
+    /**
+     * Simulates the ticks that are due and draws the game on the view surface.
+     *
+     * @param ticks    The number of ticks that are due
+     * @param alpha    How far we are between the last tick and the next one, in the range [0, 1)
+     * @param tickTime The time of the last due tick, System.nanoTime() based
+     */
+    private void draw(int ticks, float alpha, long tickTime) {
+        long start = stats.start();
+        long tickNanos = 1000000000L / world.getTickRate();
+        for (int i = 0; i < ticks && !world.isLost(); i++) {
+
+            /* A tick stands for the tickNanos before its time, a change is applied on the tick
+             * boundary that is nearest to it, so it's never more than half a tick off
+             */
+            applyInput(tickTime - (ticks - 1 - i) * tickNanos - tickNanos / 2);
+            world.tick();
+        }
+        stats.stop(FrameStats.UPDATE, start);
+
+        /* Render in between the last two ticks, unless we have lost*/
+        if (world.isLost()) {
+            alpha = 1;
+        }
+
+        if (isScoreChanged) {
+            isScoreChanged = false;
+            updateScoreRect();
+        }
+        updatePositions(alpha);
+
+        /* The canvas is null when the surface isn't available (i.e. the view is being destroyed)*/
+        start = stats.start();
+        Canvas canvas = lockCanvas();
+        if (canvas == null) {
+            return;
+        }
+        try {
+            render(canvas, alpha);
+        } finally {
+            stats.stop(FrameStats.DRAW, start);
+            start = stats.start();
+            unlockCanvasAndPost(canvas);
+            stats.stop(FrameStats.POST, start);
+        }
+        if (inputTime != 0) {
+            stats.stop(FrameStats.INPUT, inputTime);
+            inputTime = 0;
         }
     }
 
+    /**
+     * Applies the direction changes that happened until the given time.
+     *
+     * @param until The time that the tick which is about to run starts from
+     */
+    private void applyInput(long until) {
+        int direction;
+        while ((direction = input.poll(until)) != InputQueue.NONE) {
+            long time = input.getPolledTime();
+            if (time - gameStartTime >= 0) {
+                world.setDirection(direction);
+                if (inputTime == 0) {
+                    inputTime = time;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the positions of the current frame, in between the last two ticks.
+     *
+     * @param alpha How far we are between the last tick and the next one, in the range [0, 1]
+     */
+    private void updatePositions(float alpha) {
+        int previousX = world.getPreviousX();
+        heroX = previousX + Math.round((world.getX() - previousX) * alpha);
+        wallsOffset = Math.round(world.getLastWallsMove() * (1 - alpha));
+    }
+
+    /**
+     * Centers the current score, using the widths of its digits.
+     */
+    private void updateScoreRect() {
+        drawnScore = world.getScore();
+        int width = scoreGlyphs.measure(drawnScore);
+        int left = (getWidth() - width) / 2;
+        scoreRect.set(left, scoreBaseline + scoreGlyphs.getTop(), left + width,
+                scoreBaseline + scoreGlyphs.getBottom());
+    }
+
     /**
      * @return Current score
      */
     public int getScore() {
-        return score;
+        return isReady ? world.getScore() : 0;
+    }
+
+    /**
+     * @return The number of walls generated in the current game
+     */
+    public long getGeneratedWalls() {
+        return isReady ? world.getGeneratedWalls() : 0;
+    }
+
+    /**
+     * @return The frame stats of the game
+     */
+    public FrameStats getFrameStats() {
+        return stats;
     }
 
     /**
@@ -257,480 +405,272 @@ public class GameViewPortrait extends View {
     private void init() {
         heroPaint = new Paint();
         wallPaint = new Paint();
+
+        /* Let the background image show through the game*/
+        setOpaque(false);
+        setSurfaceTextureListener(this);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        /* Start loading as soon as the size is known, while the start screen is shown*/
+        loadAssets(w, h);
     }
 
     /**
-     * Draws anything related to the game.
+     * Loads the assets on a background thread, the game becomes ready when it finishes.
      *
-     * @param canvas A canvas to do the drawing on
+     * @param width  View width
+     * @param height View height
      */
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-        if (!isReady) {
-            if (getWidth() > 0 && getHeight() > 0) {
+    private void loadAssets(final int width, final int height) {
+        if (isReady || isLoading || width <= 0 || height <= 0) {
+            return;
+        }
+        isLoading = true;
+        new Thread("AssetLoader") {
+            @Override
+            public void run() {
 
                 /* Initialize everything*/
-                initializeVariables();
-
-                /*draw hero*/
-                canvas.drawBitmap(heroBitmaps.get(heroFaceDirection), x, y, heroPaint);
-            }
-        } else {
-            if (!isLost) {
-                updatePosition();
-
-                /*check if we near the top wall*/
-                Wall topWall = wallsList.get(topWallIndex);
-                if (isWallPassed &&
-                        ((topWall.getYCoordinate() < y + HEIGHT) && topWall.getYCoordinate() + THICKNESS > y)) {
-                    /*at this stage the hero is colliding with the top wall*/
-                    if (isWallHit(topWall.getYCoordinate(), topWall.getHoleCoordinate())) {
-                        isLost = true;
-                        isWallPassed = false;
+                initializeVariables(width, height);
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onAssetsLoaded();
                     }
-
-                } else if (topWall.getYCoordinate() + THICKNESS < y) {
-                    /*Wall is passed*/
-                    if (isWallPassed) {
-                        score++;
-
-                        /* change the theme after some score*/
-                        /*if (score == 20) {
-                            wallPaint.setColor(Color.WHITE);
-                            mListener.changeTheme();
-                        }*/
-
-                        /* increase game speed after some score*/
-                        if (score == 30 || score == 100) {
-                            unitsToMove += convertDpToPixel(1, getContext());
-                            wallsUnitsToMove += convertDpToPixel(1, getContext());
-                            //unitsToMove++;
-                            //wallsUnitsToMove++;
-                            //Log.d("SPEED", unitsToMove + "");
-                        }
-                        scoreMessage.setText(score + "");
-
-                        /* Play score increment sound*/
-                        MainActivity.playSound(1);
-                    }
-                    isWallPassed = true;
-                    topWallIndex = (topWallIndex + 1) % numberOfWalls;
-                }
-
-                if (isLost) {
-                    /* We have lost. Hero must touch the top wall*/
-                    undoUpdatePosition();
-                    fixHeroPosition(topWall.getPreviousHoleXCoordinate(), topWall.getYCoordinate());
-
-                    /* Wall hit sound*/
-                    MainActivity.playSound(2);
-                }
-            }
-
-            /* Draw hero*/
-            canvas.drawBitmap(heroBitmaps.get(heroFaceDirection), x, y, heroPaint);
-
-            /* Draw score*/
-            canvas.drawText(scoreMessage.getText(), scoreMessage.getX(),
-                    scoreMessage.getY(), scoreMessage.getPaint());
-
-            /* Draw Walls*/
-            for (int i = 0; i < wallsList.size(); i++) {
-                Wall myWall = wallsList.get(i);
-                if (myWall != null) {
-
-                    /* Draw from 0 to hole*/
-                    //canvas.drawRect(0, myWall.getYCoordinate(), myWall.getHoleCoordinate(isLost),
-                    //        myWall.getYCoordinate() + THICKNESS, wallPaint);
-
-                    /* Draw from hole end to end of screen*/
-                    //canvas.drawRect(myWall.getHoleCoordinate(isLost) + holeSize + 1, myWall.getYCoordinate(),
-                    //        getWidth(), myWall.getYCoordinate() + THICKNESS, wallPaint);
-                    /* Draw from 0 to hole*/
-                    canvas.drawBitmap(wallBitmaps.get(0), -1 * (getWidth() - myWall.getHoleCoordinate()), myWall.getYCoordinate(), wallPaint);
-                    /* Draw from hole end to end of screen*/
-                    canvas.drawBitmap(wallBitmaps.get(1), holeSize + myWall.getHoleCoordinate(), myWall.getYCoordinate(), wallPaint);
-
-                }
+                });
             }
-        }
+        }.start();
     }
 
     /**
-     * Initializes everything.
+     * Called on the UI thread when the assets are loaded.
      */
-    private void initializeVariables() {
+    private void onAssetsLoaded() {
+        isLoading = false;
+        if (isAvailable()) {
+            redraw();
+        }
+        if (mListener != null) {
+            mListener.onGameReady();
+        }
+    }
 
-        /* The score message text size*/
-        int scoreTextSize = getResources().getDimensionPixelSize(R.dimen.score_text_size);
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surface, int width, int height) {
 
-        /* The amount of pixels that the hero and the each wall moves.
-         * When the game thread asks the game to repaint itself then walls and the hero will move
-         * by these amounts
-         */
-        unitsToMove = convertDpToPixel(HERO_SPEED, getContext());
-        wallsUnitsToMove = convertDpToPixel(WALLS_SPEED, getContext());
-        holesUnitsToMove = convertDpToPixel(HOLES_SPEED, getContext());
-        //THICKNESS = convertDpToPixel(THICKNESS, getContext());
-        //HEIGHT = convertDpToPixel(HEIGHT, getContext());
-        THICKNESS = getHeight() / 25;
-        HEIGHT = (int) (THICKNESS * 1.5);
-        holeSize = getWidth() / COLUMNS_NUMBER;
-        WIDTH = (int) (holeSize / 3.5);
-        WALLS_MARGIN = ((getWidth() - (holeSize)) / unitsToMove) * wallsUnitsToMove + Math.max(THICKNESS, HEIGHT);
-
-        /* Hero x and y coordinates*/
-        x = getWidth() / 2 - WIDTH / 2;
-        MAX_HEIGHT = getHeight() / 4;
-        y = MAX_HEIGHT / 2;
-
-        /* The game score message*/
-        scoreMessage = new CenterMessage("0", getWidth(), getHeight());
-        scoreMessage.getPaint().setTextSize(scoreTextSize);
-
-        numberOfWalls = getHeight() / (WALLS_MARGIN);
-        numberOfWalls += 2;
-
-        /* Initialize the list of the walls and add one wall to it*/
-        wallsList = new ArrayList<>(numberOfWalls);
-        numberOfGeneratedWalls = 1;
-        Wall wall = new Wall(getWidth() - holeSize, numberOfGeneratedWalls % MOVING_HOLES_TIME == 0 ? holesUnitsToMove : 0);
-        wall.setYCoordinate(getHeight());
-        wallsList.add(wall);
-        indexInWallList = 1;
-
-        /* There are no other wall so far*/
-        for (int i = 1; i < numberOfWalls; i++) {
-            wallsList.add(null);
-        }
+        /* The size is normally known before the surface is available, this is just in case*/
+        loadAssets(getWidth(), getHeight());
 
-        /* Load hero bitmaps*/
-        heroBitmaps = new ArrayList<>(3);
-
-        Rect heroRect = new Rect();
-        heroRect.left = 0;
-        heroRect.top = 0;
-        heroRect.right = heroRect.left + WIDTH;
-        heroRect.bottom = heroRect.top + HEIGHT;
-
-        Bitmap temp = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(temp);
-        Bitmap bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.hero_down);
-        canvas.drawBitmap(bitmap, null, heroRect, heroPaint);
-        heroBitmaps.add(temp);
-
-        temp = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(temp);
-        bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.hero_left);
-        canvas.drawBitmap(bitmap, null, heroRect, heroPaint);
-        heroBitmaps.add(temp);
-
-        temp = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(temp);
-        bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.hero_right);
-        canvas.drawBitmap(bitmap, null, heroRect, heroPaint);
-        heroBitmaps.add(temp);
-        heroFaceDirection = DOWN;
-
-        /* Load wall bitmaps*/
-        wallBitmaps = new ArrayList<>(3);
-
-        Rect wallRect = new Rect();
-        wallRect.left = 0;
-        wallRect.top = 0;
-        wallRect.right = heroRect.left + getWidth();
-        wallRect.bottom = heroRect.top + THICKNESS;
-
-        temp = Bitmap.createBitmap(getWidth(), THICKNESS, Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(temp);
-        bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.wall_left);
-        canvas.drawBitmap(bitmap, null, wallRect, wallPaint);
-        wallBitmaps.add(temp);
-
-        temp = Bitmap.createBitmap(getWidth(), THICKNESS, Bitmap.Config.ARGB_8888);
-        canvas = new Canvas(temp);
-        bitmap = BitmapFactory.decodeResource(getResources(), R.drawable.wall_right);
-        canvas.drawBitmap(bitmap, null, wallRect, wallPaint);
-        wallBitmaps.add(temp);
+        /* Draw the current state, the game thread may not be running yet*/
+        redraw();
+    }
 
-        /* The game is now ready to be painted*/
-        isReady = true;
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surface, int width, int height) {
     }
 
     /**
-     * Checks if the wall hits a visible pixel in the hero bitmap.
-     *
-     * @param wallY Top wall y coordinate
-     * @param holeX Hole top left x coordinate
-     * @return true if the hero hit the wall, false otherwise
-     */
-    private boolean isWallHit(int wallY, int holeX) {
-
-        /* We haven't reached the wall yet*/
-        if (y + HEIGHT < wallY)
-            return false;
-
-        if (holeX < x && (x + WIDTH) < holeX + holeSize)
-            return false;
-
-        /* Get the correct bitmap to check against*/
-        Bitmap temp = heroBitmaps.get(heroFaceDirection);
-
-        /* We should check every horizontal pixel for a collision but
-         * from what y position in the bitmap should we start the check?
-         * For now since the height of the hero is bigger than the thickness then there are two possible states
-         * for the bitmap y location relative to the hole.
-         * 1- Hero's top pixels above the wall
-         * 2- Hero's top pixels are passing the wall.
-         * 3- Currently there is no option for when the hero is contained entirely within the hole.
-         * (i.e. The thickness of the walls is larger than the hero)
-         * However The following code should handle even that case.
-         * To avoid checking all pixels we should only check the horizontals pixels rows that moved in the last step.
-         */
-        int start = HEIGHT - ((y + HEIGHT) - wallY);
-        int wallI = 0;
-        if (wallY < y) {
-            wallI = y - wallY;
-            start = 0;
-        }
+     * Synchronized with the frames, so the surface is only released after the frame
+     * that is being drawn on it is posted.
+     */
+    @Override
+    public synchronized boolean onSurfaceTextureDestroyed(SurfaceTexture surface) {
+        return true;
+    }
 
-        /* To only check the horizontals pixels rows that moved in the last step
-         * the loop should end at start + unitsToMove, because the hero bitmap moved unitsToMove pixels
-         * in the last step.
-         */
-        for (int i = start; i < HEIGHT && wallI < THICKNESS; i++, wallI++) {
-            for (int j = 0; j < WIDTH; j++) {
-
-                /*if pixel is visible*/
-                if (!isPixelTransparent(temp.getPixel(j, i))) {
-
-                    /*we will hit a wall when a visible pixel hit*/
-                    if ((j + x) < holeX || (j + x + WIDTH) > (holeX + holeSize)) {
-                        if (x < holeX) {
-                            if (!isPixelTransparent(wallBitmaps.get(0).getPixel((getWidth() - holeX) + (j + x), wallI))) {
-                                return true;
-                            }
-                        } else if ((x + WIDTH) > (holeX + holeSize) && (j + x) > (holeX + holeSize)) {
-                            if (!isPixelTransparent(wallBitmaps.get(1).getPixel((j + x - (holeX + holeSize)), wallI))) {
-                                return true;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-        return false;
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surface) {
     }
 
     /**
-     * Moves the hero according to its direction.
+     * Draws anything related to the game.
+     *
+     * @param canvas A canvas to do the drawing on
+     * @param alpha  How far we are between the last tick and the next one, in the range [0, 1)
      */
-    private void updatePosition() {
+    private void render(Canvas canvas, float alpha) {
+
+        /* The surface keeps the last frame, clear it*/
+        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+
+        boolean isLost = world.isLost();
+        int width = getWidth();
+        int holeSize = world.getHoleSize();
+
+        /* Draw hero*/
+        atlas.draw(canvas, world.getHeroFaceDirection(), heroX, world.getY(), spriteDestination, heroPaint);
 
-        /* Decrement x coordinate to move to left*/
-        if (direction == LEFT) {
-            x -= unitsToMove;
+        /* Draw score*/
+        scoreGlyphs.draw(canvas, drawnScore, scoreRect.left, scoreBaseline, scorePaint);
 
-            /* Handle left screen edge hit*/
-            if (x < 0) {
-                x = 0;
+        /* Draw Walls*/
+        Walls walls = world.getWalls();
+        for (int i = 0; i < walls.size(); i++) {
+            int slot = walls.getSlot(i);
+            int wallY = walls.getYCoordinate(slot) + wallsOffset;
+            int holeX = walls.getHoleCoordinate(slot);
+            if (!isLost) {
+                int previousHoleX = walls.getPreviousHoleXCoordinate(slot);
+                holeX = previousHoleX + Math.round((holeX - previousHoleX) * alpha);
             }
 
-            /* Increment x coordinate to move to right*/
-        } else if (direction == RIGHT) {
-            x += unitsToMove;
+            /* Draw from 0 to hole, using the end of the left wall sprite*/
+            if (holeX > 0) {
+                atlas.drawColumns(canvas, SPRITE_WALL_LEFT, width - holeX, width, 0, wallY,
+                        spriteSource, spriteDestination, wallPaint);
+            }
 
-            /* Handle left screen edge hit*/
-            if (x > getWidth() - WIDTH) {
-                x = getWidth() - WIDTH;
+            /* Draw from hole end to end of screen, using the start of the right wall sprite*/
+            int holeEnd = holeX + holeSize;
+            if (holeEnd < width) {
+                atlas.drawColumns(canvas, SPRITE_WALL_RIGHT, 0, width - holeEnd, holeEnd, wallY,
+                        spriteSource, spriteDestination, wallPaint);
             }
         }
 
-        /* Get the bottom wall, if this wall passed the WALLS_MARGIN then we should generate a new wall
-         * The bottom wall is behind the wall that we just added.
-         */
-        int bottomWall = (indexInWallList - 1);
-
-        /* This is done to make the list circular*/
-        if (bottomWall < 0)
-            bottomWall = numberOfWalls - 1;
-
-        /* Decrement every wall y coordinate to move it upside*/
-        for (int i = 0; i < wallsList.size(); i++) {
-            Wall myWall = wallsList.get(i);
-            if (myWall != null) {
-                int yCoordinate = myWall.getYCoordinate();
-
-                /* Is this the bottom wall?*/
-                if (i == bottomWall) {
-
-                    /* Did it pass WALLS_MARGIN?*/
-                    if (yCoordinate <= getHeight() - WALLS_MARGIN) {
-
-                        /* Generate a new wall*/
-                        numberOfGeneratedWalls++;
-                        Wall newWall = new Wall(getWidth() - holeSize, numberOfGeneratedWalls % MOVING_HOLES_TIME == 0 ? holesUnitsToMove : 0);
-                        newWall.setYCoordinate(getHeight());
-                        wallsList.set(indexInWallList++, newWall);
-                        indexInWallList = indexInWallList % numberOfWalls;
-                    }
-                }
+        /* Draw the frame stats, over everything else*/
+        if (isHudEnabled) {
+            hud.draw(canvas);
+        }
+    }
 
-                yCoordinate -= wallsUnitsToMove;
+    @Override
+    public void onScore(int score) {
+        isScoreChanged = true;
 
-                /* If a wall reaches the top we should remove it*/
-                if (yCoordinate + THICKNESS <= 0) {
-                    wallsList.set(i, null);
-                } else {
-                    myWall.setYCoordinate(yCoordinate);
-                    myWall.updateHole();
-                }
-            }
-        }
+        /* Play score increment sound*/
+        MainActivity.playSound(1);
     }
 
-    /**
-     * Undo changes from last step.
-     */
-    private void undoUpdatePosition() {
-        if (direction == LEFT && x != 0) {
-            x += unitsToMove;
+    @Override
+    public void onWallHit() {
 
-        } else if (direction == RIGHT && x != getWidth() - WIDTH) {
-            x -= unitsToMove;
-        }
-        for (int i = 0; i < wallsList.size(); i++) {
-            if (wallsList.get(i) != null) {
-                wallsList.get(i).fixHoleCoordinate();
-            }
-        }
-        y -= wallsUnitsToMove;
+        /* Wall hit sound*/
+        MainActivity.playSound(2);
     }
 
     /**
-     * Checks if a pixel transparent.
+     * Initializes everything.<br>
+     * This runs on the loader thread, nothing can be drawn until isReady is set at the end.
      *
-     * @param x Pixel's color
-     * @return true if the pixel is transparent, false otherwise
+     * @param width  View width
+     * @param height View height
      */
-    private boolean isPixelTransparent(int x) {
-        return ((x & 0xff000000) >> 24) == 0;
-    }
+    private void initializeVariables(int width, int height) {
 
+        /* The score message text size*/
+        int scoreTextSize = getResources().getDimensionPixelSize(R.dimen.score_text_size);
 
-    /**
-     * Checks the transparency of the x wall pixel.
-     * For more complex pixels then this implementation needs change.
-     * This is planned for future updates.
-     *
-     * @param x     Pixel x coordinate with respective to the wall
-     * @param holeX Hole x coordinate
-     * @return true if this pixel is transparent, false otherwise
-     */
-    private boolean getWallPixel(int x, int holeX) {
-        // TODO add some logic here
-        return !(x < holeX || x > holeX + holeSize);
+        /* The game itself*/
+        float density = getResources().getDisplayMetrics().density;
+        world = new GameWorld(width, height, density, tickRate, loadDifficultyProfile());
+        world.setCallBack(this);
+        world.setRecorder(recorder);
+        world.setFrameStats(stats);
+        hud = new PerformanceHud(stats, height, density);
+        int WIDTH = world.getHeroWidth();
+        int HEIGHT = world.getHeroHeight();
+        int THICKNESS = world.getWallThickness();
+
+        /* The game score, its digits are rendered once.
+         * Digits have the same height, so the score stays where a centered "0" is
+         */
+        scorePaint = new Paint();
+        scorePaint.setColor(Color.RED);
+        scorePaint.setTextSize(scoreTextSize);
+        scoreGlyphs = new DigitGlyphs(scorePaint);
+        Rect zeroBounds = new Rect();
+        scorePaint.getTextBounds("0", 0, 1, zeroBounds);
+        scoreBaseline = (height - zeroBounds.height()) / 2;
+        isScoreChanged = true;
+
+        /* The sprites may have been loaded for this screen before (e.g. by a previous game view)*/
+        String spritesKey = SpriteCache.key(width, height, density);
+        SpriteCache.Sprites sprites = SpriteCache.get(spritesKey);
+        if (sprites == null) {
+            sprites = loadSprites(WIDTH, HEIGHT, width, THICKNESS);
+            SpriteCache.put(spritesKey, sprites);
+        }
+        atlas = sprites.getAtlas();
+        world.setHeroMask(GameWorld.DOWN, sprites.getHeroMask(GameWorld.DOWN));
+        world.setHeroMask(GameWorld.LEFT, sprites.getHeroMask(GameWorld.LEFT));
+        world.setHeroMask(GameWorld.RIGHT, sprites.getHeroMask(GameWorld.RIGHT));
+        world.setWallMask(GameWorld.WALL_LEFT, sprites.getWallMask(GameWorld.WALL_LEFT));
+        world.setWallMask(GameWorld.WALL_RIGHT, sprites.getWallMask(GameWorld.WALL_RIGHT));
+
+        /* The game is now ready to be painted*/
+        isReady = true;
     }
 
     /**
-     * Fix the hero bitmap so that it doesn't overlap with the wall.<br>
-     * The bitmap should only hit the wall.
+     * Loads the difficulty profile of the game from the raw resources, so that the game can be
+     * tuned without changing the code. The default profile is used if it can't be read.
      *
-     * @param topWallHoleXCoordinate Top wall hole x coordinate
-     * @param topWallYCoordinate     Top wall y coordinate
-     */
-    private void fixHeroPosition(int topWallHoleXCoordinate, int topWallYCoordinate) {
-        /*hero is not in the hole*/
-        if (x > (topWallHoleXCoordinate + holeSize) || x + WIDTH < topWallHoleXCoordinate
-                || x + unitsToMove > (topWallHoleXCoordinate + holeSize) ||
-                x + WIDTH - unitsToMove < topWallHoleXCoordinate) {
-            /*make hero touch wall*/
-            if (topWallYCoordinate > y) {
-                while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                    y++;
-                }
-            }
-        } else {
-
-            /*hero is partially or fully in the hole attempt to move the hero until it hits*/
-            if (direction == DOWN) {
-                x += unitsToMove;
-                if (isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                    x -= unitsToMove;
-                    x -= wallsUnitsToMove;
-                    while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                        x++;
-                    }
-                } else {
-                    x -= unitsToMove;
-                    x -= unitsToMove;
-                    if (isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                        x += unitsToMove;
-                        x += wallsUnitsToMove;
-                        while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                            x--;
-                        }
-                    } else {
-                        x += unitsToMove;
-                        while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                            y++;
-                        }
-                    }
-                }
-            } else if (direction == RIGHT) {
-                int xMovement = unitsToMove / wallsUnitsToMove;
-                while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                    x += xMovement;
-                }
-            } else if (direction == LEFT) {
-                int xMovement = unitsToMove / wallsUnitsToMove;
-                while (!isWallHit(topWallYCoordinate, topWallHoleXCoordinate)) {
-                    x -= xMovement;
-                }
+     * @return The profile
+     */
+    private DifficultyProfile loadDifficultyProfile() {
+        Reader reader = new InputStreamReader(getResources().openRawResource(R.raw.difficulty));
+        try {
+            return DifficultyProfile.read(reader);
+        } catch (IOException e) {
+            Log.d("DIFFICULTY", "Error while reading the difficulty profile");
+        } catch (IllegalArgumentException e) {
+            Log.d("DIFFICULTY", "Invalid difficulty profile: " + e.getMessage());
+        } finally {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                Log.d("DIFFICULTY", "Error while closing the difficulty profile");
             }
         }
+        return DifficultyProfile.DEFAULT;
     }
 
     /**
-     * Converts from dp to pixels.<br>
-     * Code borrowed from: <br>
-     * http://stackoverflow.com/a/9563438<br>
-     * Many thanks to both Muhammad Nabeel Arif and Steven Byle
+     * Loads the sprites and builds their collision masks from the visible pixels.
      *
-     * @param dp      Units in dp
-     * @param context Application context
-     * @return Units in pixels
-     */
-    private int convertDpToPixel(float dp, Context context) {
-        DisplayMetrics displayMetrics = context.getResources().getDisplayMetrics();
-        return (int) ((dp * displayMetrics.density) + 0.5);
+     * @param heroWidth     Hero sprite width
+     * @param heroHeight    Hero sprite height
+     * @param wallWidth     Wall sprite width
+     * @param wallThickness Wall sprite thickness
+     * @return The sprites
+     */
+    private SpriteCache.Sprites loadSprites(int heroWidth, int heroHeight, int wallWidth, int wallThickness) {
+
+        /* Pack the hero sprites and the wall sprites into one atlas, scaled to their size on the screen*/
+        int[] widths = {heroWidth, heroWidth, heroWidth, wallWidth, wallWidth};
+        int[] heights = {heroHeight, heroHeight, heroHeight, wallThickness, wallThickness};
+        SpriteAtlas atlas = new SpriteAtlas(widths, heights, wallWidth);
+        atlas.load(getResources(), GameWorld.DOWN, R.drawable.hero_down);
+        atlas.load(getResources(), GameWorld.LEFT, R.drawable.hero_left);
+        atlas.load(getResources(), GameWorld.RIGHT, R.drawable.hero_right);
+        atlas.load(getResources(), SPRITE_WALL_LEFT, R.drawable.wall_left);
+        atlas.load(getResources(), SPRITE_WALL_RIGHT, R.drawable.wall_right);
+        atlas.finishLoading();
+
+        CollisionMask[] heroMasks = new CollisionMask[3];
+        for (int direction = 0; direction < heroMasks.length; direction++) {
+            heroMasks[direction] = CollisionMask.fromPixels(atlas.getPixels(direction), heroWidth, heroHeight);
+        }
+        CollisionMask[] wallMasks = {
+                CollisionMask.fromPixels(atlas.getPixels(SPRITE_WALL_LEFT), wallWidth, wallThickness),
+                CollisionMask.fromPixels(atlas.getPixels(SPRITE_WALL_RIGHT), wallWidth, wallThickness)
+        };
+        return new SpriteCache.Sprites(atlas, heroMasks, wallMasks);
     }
 
     /**
-     * Restarts the game.
-     */
-    public void restartGame() {
-        isLost = false;
-        score = 0;
-        scoreMessage.setText("0");
-        for (int i = 0; i < wallsList.size(); i++) {
-            wallsList.set(i, null);
-        }
-        numberOfGeneratedWalls = 1;
-        Wall wall = new Wall(getWidth() - holeSize, numberOfGeneratedWalls % MOVING_HOLES_TIME == 0 ? holesUnitsToMove : 0);
-        wall.setYCoordinate(getHeight());
-        wallsList.set(0, wall);
-        indexInWallList = 1;
-        topWallIndex = 0;
-        isWallPassed = true;
-        x = getWidth() / 2 - WIDTH / 2;
-        y = MAX_HEIGHT / 2;
-        direction = DOWN;
-        heroFaceDirection = DOWN;
-        unitsToMove = convertDpToPixel(HERO_SPEED, getContext());
-        wallsUnitsToMove = convertDpToPixel(WALLS_SPEED, getContext());
-        holesUnitsToMove = convertDpToPixel(HOLES_SPEED, getContext());
+     * Restarts the game.<br>
+     * This is synchronized with the frames, so a frame never sees a half restarted game.
+     */
+    public synchronized void restartGame() {
+        gameStartTime = System.nanoTime();
+        world.restart();
+        isScoreChanged = true;
     }
 
     /**
@@ -746,5 +686,10 @@ public class GameViewPortrait extends View {
          * Changes the game view current theme. Currently not used.
          */
         void changeTheme();
+
+        /**
+         * Called on the UI thread when the assets are loaded and the game can be played.
+         */
+        void onGameReady();
     }
 }
@@ -0,0 +1,176 @@
+/*
+ * PerformanceHud
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.game;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+
+import alahashesh.com.skyjumper.engine.FrameStats;
+import alahashesh.com.skyjumper.engine.Histogram;
+
+/**
+ * The PerformanceHud is a Class that draws the frame stats over the game, one line for each
+ * phase (p50, p95, p99 and max in microseconds) and one line for the frames count.<br><br>
+ *
+ * The text is written into preallocated char arrays, so drawing the HUD allocates nothing.
+ * It's refreshed every REFRESH_FRAMES frames, the numbers would be unreadable otherwise.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class PerformanceHud {
+
+    /* The number of frames between two refreshes of the text*/
+    private static final int REFRESH_FRAMES = 30;
+
+    /* The name of each phase, padded to the same length*/
+    private static final char[][] NAMES = {
+            "update ".toCharArray(),
+            "collide".toCharArray(),
+            "draw   ".toCharArray(),
+            "post   ".toCharArray(),
+            "frame  ".toCharArray(),
+            "input  ".toCharArray()
+    };
+    private static final char[] P50 = " p50 ".toCharArray();
+    private static final char[] P95 = " p95 ".toCharArray();
+    private static final char[] P99 = " p99 ".toCharArray();
+    private static final char[] MAX = " max ".toCharArray();
+    private static final char[] FRAMES = "frames ".toCharArray();
+    private static final char[] MISSED = " missed ".toCharArray();
+
+    /* The longest possible line, used to size the HUD*/
+    private static final String WIDEST_LINE = "collide p50 999999 p95 999999 p99 999999 max 999999";
+
+    private final FrameStats stats;
+    private final Paint paint;
+    private final Paint backgroundPaint;
+    private final char[][] lines = new char[FrameStats.PHASES + 1][64];
+    private final int[] lengths = new int[FrameStats.PHASES + 1];
+    private final Rect bounds = new Rect();
+    private final int lineHeight;
+    private final int ascent;           /* Distance from the top of a line to its baseline, negative*/
+    private final int padding;
+    private int framesUntilRefresh;
+
+    /**
+     * Constructs a new HUD at the bottom left of the screen.
+     *
+     * @param stats        The stats to show
+     * @param screenHeight Screen height in pixels
+     * @param density      Screen density
+     */
+    public PerformanceHud(FrameStats stats, int screenHeight, float density) {
+        this.stats = stats;
+        paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.WHITE);
+        paint.setTypeface(Typeface.MONOSPACE);
+        paint.setTextSize(10 * density);
+        backgroundPaint = new Paint();
+        backgroundPaint.setColor(0x80000000);
+
+        Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+        lineHeight = metrics.descent - metrics.ascent;
+        ascent = metrics.ascent;
+        padding = (int) (4 * density);
+        int width = (int) paint.measureText(WIDEST_LINE) + 2 * padding;
+        int height = lines.length * lineHeight + 2 * padding;
+        bounds.set(0, screenHeight - height, width, screenHeight);
+    }
+
+    /**
+     * Draws the HUD.
+     *
+     * @param canvas The canvas to draw on
+     */
+    public void draw(Canvas canvas) {
+        if (--framesUntilRefresh <= 0) {
+            framesUntilRefresh = REFRESH_FRAMES;
+            refresh();
+        }
+        canvas.drawRect(bounds, backgroundPaint);
+        int x = bounds.left + padding;
+        int y = bounds.top + padding - ascent;
+        for (int i = 0; i < lines.length; i++) {
+            canvas.drawText(lines[i], 0, lengths[i], x, y, paint);
+            y += lineHeight;
+        }
+    }
+
+    /**
+     * Writes the current stats into the lines.
+     */
+    private void refresh() {
+        for (int phase = 0; phase < FrameStats.PHASES; phase++) {
+            Histogram histogram = stats.getHistogram(phase);
+            char[] line = lines[phase];
+            int length = append(line, 0, NAMES[phase]);
+            length = append(line, length, P50);
+            length = append(line, length, histogram.getPercentile(50) / 1000);
+            length = append(line, length, P95);
+            length = append(line, length, histogram.getPercentile(95) / 1000);
+            length = append(line, length, P99);
+            length = append(line, length, histogram.getPercentile(99) / 1000);
+            length = append(line, length, MAX);
+            length = append(line, length, histogram.getMax() / 1000);
+            lengths[phase] = length;
+        }
+        char[] line = lines[FrameStats.PHASES];
+        int length = append(line, 0, FRAMES);
+        length = append(line, length, stats.getHistogram(FrameStats.FRAME).getCount());
+        length = append(line, length, MISSED);
+        length = append(line, length, stats.getMissedFrames());
+        lengths[FrameStats.PHASES] = length;
+    }
+
+    /**
+     * Appends text to a line.
+     *
+     * @param line   The line
+     * @param length The current length of the line
+     * @param text   The text
+     * @return The new length of the line
+     */
+    private static int append(char[] line, int length, char[] text) {
+        int count = Math.min(text.length, line.length - length);
+        System.arraycopy(text, 0, line, length, count);
+        return length + count;
+    }
+
+    /**
+     * Appends a non negative number to a line.
+     *
+     * @param line   The line
+     * @param length The current length of the line
+     * @param value  The number
+     * @return The new length of the line
+     */
+    private static int append(char[] line, int length, long value) {
+
+        /* Count the digits first, then write them from the last one*/
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        if (length + digits > line.length) {
+            return length;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            line[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return length + digits;
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * SpriteAtlas
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.game;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Build;
+
+/**
+ * The SpriteAtlas is a Class that packs all the sprites of the game into one bitmap.<br>
+ * Every sprite is scaled to its size on the screen once, when it's loaded, and drawn by copying
+ * its part of the atlas, so every frame draws from the same bitmap.<br><br>
+ *
+ * The sprites are placed in rows (shelves) from left to right, a new row is started when
+ * a sprite doesn't fit in the width of the atlas.<br>
+ * From KitKat the memory of a decoded drawable is reused to decode the next one (inBitmap),
+ * call {@link #finishLoading()} after the last sprite is loaded to release it.<br><br>
+ *
+ * Once loaded the atlas never changes, so it's shared by every game view through the
+ * {@link SpriteCache}, which owns it. Drawing uses Rects of the caller, and the atlas isn't
+ * recycled: it's freed by the garbage collector when the cache drops it and no view uses it.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class SpriteAtlas {
+
+    private final Bitmap bitmap;            /* The atlas*/
+    private final Rect[] sprites;           /* The part of the atlas that holds each sprite*/
+
+    /* Scales the sources smoothly when they are loaded*/
+    private final Paint loadPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    /* The last decoded drawable, its memory is reused by the next decode*/
+    private Bitmap decoded;
+
+    /**
+     * Constructs an empty atlas that can hold sprites of the given sizes.
+     *
+     * @param widths   The width of each sprite
+     * @param heights  The height of each sprite
+     * @param maxWidth The maximum width of the atlas, must fit the widest sprite
+     */
+    public SpriteAtlas(int[] widths, int[] heights, int maxWidth) {
+        sprites = new Rect[widths.length];
+        int x = 0;
+        int y = 0;
+        int rowHeight = 0;
+        int atlasWidth = 0;
+        for (int i = 0; i < widths.length; i++) {
+
+            /* Start a new row if the sprite doesn't fit in this one*/
+            if (x > 0 && x + widths[i] > maxWidth) {
+                y += rowHeight;
+                x = 0;
+                rowHeight = 0;
+            }
+            sprites[i] = new Rect(x, y, x + widths[i], y + heights[i]);
+            x += widths[i];
+            rowHeight = Math.max(rowHeight, heights[i]);
+            atlasWidth = Math.max(atlasWidth, x);
+        }
+        bitmap = Bitmap.createBitmap(atlasWidth, y + rowHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Loads a sprite from a drawable and scales it into its place.<br>
+     * The drawable is decoded at the smallest size that is still bigger than the sprite,
+     * only one decoded source is in memory at a time.
+     *
+     * @param resources  The resources of the application
+     * @param sprite     The sprite index
+     * @param drawableId The drawable that holds the sprite
+     */
+    public void load(Resources resources, int sprite, int drawableId) {
+        Rect place = sprites[sprite];
+
+        /* Read the size of the drawable without decoding it*/
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inScaled = false;
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(resources, drawableId, options);
+
+        /* Skip every other pixel as long as the source stays bigger than the sprite*/
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= place.width()
+                && options.outHeight / (sampleSize * 2) >= place.height()) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+
+        /* Decode into the memory of the last drawable if it's big enough*/
+        if (decoded != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int bytes = (options.outWidth / sampleSize + 1) * (options.outHeight / sampleSize + 1) * 4;
+            if (decoded.getAllocationByteCount() >= bytes) {
+                options.inMutable = true;
+                options.inBitmap = decoded;
+            }
+        }
+        Bitmap source;
+        try {
+            source = BitmapFactory.decodeResource(resources, drawableId, options);
+        } catch (IllegalArgumentException e) {
+
+            /* The memory can't be reused for this drawable*/
+            options.inBitmap = null;
+            source = BitmapFactory.decodeResource(resources, drawableId, options);
+        }
+        if (decoded != null && decoded != source) {
+            decoded.recycle();
+        }
+        decoded = source;
+
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawBitmap(source, null, place, loadPaint);
+    }
+
+    /**
+     * Releases the memory of the decoded drawables, call it after the last sprite is loaded.
+     */
+    public void finishLoading() {
+        if (decoded != null) {
+            decoded.recycle();
+            decoded = null;
+        }
+    }
+
+    /**
+     * @return The memory used by the atlas, in bytes
+     */
+    public int getByteCount() {
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * Draws a whole sprite.
+     *
+     * @param canvas      The canvas to draw on
+     * @param sprite      The sprite index
+     * @param x           The x coordinate of the sprite on the canvas
+     * @param y           The y coordinate of the sprite on the canvas
+     * @param destination A Rect of the caller that is set to where the sprite is drawn
+     * @param paint       The paint to draw with, may be null
+     */
+    public void draw(Canvas canvas, int sprite, int x, int y, Rect destination, Paint paint) {
+        Rect place = sprites[sprite];
+        destination.set(x, y, x + place.width(), y + place.height());
+        canvas.drawBitmap(bitmap, place, destination, paint);
+    }
+
+    /**
+     * Draws some columns of a sprite.
+     *
+     * @param canvas      The canvas to draw on
+     * @param sprite      The sprite index
+     * @param left        The first column of the sprite to draw
+     * @param right       The column after the last one to draw
+     * @param x           The x coordinate of the first drawn column on the canvas
+     * @param y           The y coordinate of the sprite on the canvas
+     * @param source      A Rect of the caller that is set to the drawn part of the atlas
+     * @param destination A Rect of the caller that is set to where the columns are drawn
+     * @param paint       The paint to draw with, may be null
+     */
+    public void drawColumns(Canvas canvas, int sprite, int left, int right, int x, int y,
+                            Rect source, Rect destination, Paint paint) {
+        Rect place = sprites[sprite];
+        source.set(place.left + left, place.top, place.left + right, place.bottom);
+        destination.set(x, y, x + right - left, y + place.height());
+        canvas.drawBitmap(bitmap, source, destination, paint);
+    }
+
+    /**
+     * Reads all the pixels of a sprite at once.
+     *
+     * @param sprite The sprite index
+     * @return ARGB pixels, row by row
+     */
+    public int[] getPixels(int sprite) {
+        Rect place = sprites[sprite];
+        int[] pixels = new int[place.width() * place.height()];
+        bitmap.getPixels(pixels, 0, place.width(), place.left, place.top, place.width(), place.height());
+        return pixels;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * SpriteCache
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.game;
+
+import android.content.ComponentCallbacks2;
+import android.util.LruCache;
+
+import alahashesh.com.skyjumper.engine.CollisionMask;
+
+/**
+ * The SpriteCache is a Class that keeps the loaded sprites and their collision masks for the
+ * whole life of the process, so that recreating the game view (e.g. rotating the device or
+ * coming back to the game) doesn't decode and scale the drawables again.<br><br>
+ *
+ * Sprites are scaled for a screen, so they are cached by the screen size and density.
+ * The least recently used sprites are dropped when the cache takes more than an eighth of the heap.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public final class SpriteCache {
+
+    /* The cached sprites, sized by their bytes*/
+    private static final LruCache<String, Sprites> CACHE =
+            new LruCache<String, Sprites>((int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8)) {
+                @Override
+                protected int sizeOf(String key, Sprites value) {
+                    return value.getByteCount();
+                }
+            };
+
+    private SpriteCache() {
+    }
+
+    /**
+     * @param width   Screen width in pixels
+     * @param height  Screen height in pixels
+     * @param density Screen density
+     * @return The key of the sprites of this screen
+     */
+    public static String key(int width, int height, float density) {
+        return width + "x" + height + "@" + density;
+    }
+
+    /**
+     * @param key The key of the sprites, see {@link #key(int, int, float)}
+     * @return The cached sprites, or null if they aren't cached
+     */
+    public static Sprites get(String key) {
+        return CACHE.get(key);
+    }
+
+    /**
+     * Caches sprites.
+     *
+     * @param key     The key of the sprites, see {@link #key(int, int, float)}
+     * @param sprites The sprites
+     */
+    public static void put(String key, Sprites sprites) {
+        CACHE.put(key, sprites);
+    }
+
+    /**
+     * Drops the sprites when the system is running low on memory and the game is in the background.
+     *
+     * @param level The level passed to onTrimMemory()
+     */
+    public static void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            CACHE.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            CACHE.trimToSize(CACHE.maxSize() / 2);
+        }
+    }
+
+    /**
+     * The Sprites is a Class that holds the sprite atlas of a screen along with the collision masks
+     * of its sprites. None of them changes once loaded, so they can be shared by every game view,
+     * the views only draw from the atlas with their own Rects and never recycle it.
+     *
+     * @author Ala' Hashesh
+     * @version 1.0
+     * @since 2015-08-30
+     */
+    public static class Sprites {
+
+        private final SpriteAtlas atlas;
+        private final CollisionMask[] heroMasks;
+        private final CollisionMask[] wallMasks;
+
+        /**
+         * Constructs a new sprites holder.
+         *
+         * @param atlas     The sprite atlas
+         * @param heroMasks The hero masks, one for each direction
+         * @param wallMasks The wall masks, one for each side
+         */
+        public Sprites(SpriteAtlas atlas, CollisionMask[] heroMasks, CollisionMask[] wallMasks) {
+            this.atlas = atlas;
+            this.heroMasks = heroMasks;
+            this.wallMasks = wallMasks;
+        }
+
+        /**
+         * @return The sprite atlas
+         */
+        public SpriteAtlas getAtlas() {
+            return atlas;
+        }
+
+        /**
+         * @param direction The direction that the hero is looking at
+         * @return The hero mask
+         */
+        public CollisionMask getHeroMask(int direction) {
+            return heroMasks[direction];
+        }
+
+        /**
+         * @param side The side of the wall
+         * @return The wall mask
+         */
+        public CollisionMask getWallMask(int side) {
+            return wallMasks[side];
+        }
+
+        /**
+         * @return The memory used by the sprites, in bytes
+         */
+        public int getByteCount() {
+            int bytes = atlas.getByteCount();
+            for (CollisionMask mask : heroMasks) {
+                bytes += mask.getByteCount();
+            }
+            for (CollisionMask mask : wallMasks) {
+                bytes += mask.getByteCount();
+            }
+            return bytes;
+        }
+    }
+}
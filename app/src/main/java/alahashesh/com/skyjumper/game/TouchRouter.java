@@ -0,0 +1,131 @@
+/*
+ * TouchRouter
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.game;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * The TouchRouter is a Class that turns touch events into direction changes of the hero.<br>
+ * Touching the right half of the screen sends the hero to the right, touching the left half
+ * sends it to the left, and lifting the finger lets it fall down.<br><br>
+ *
+ * Every view that gets game touches (e.g. the game view itself and the pause screen, whose first
+ * touch resumes the game) passes them here, so the direction changes keep the times of the
+ * original events and no event is copied.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class TouchRouter implements View.OnTouchListener {
+
+    /* No direction was sent since the finger touched the screen*/
+    private static final int NO_DIRECTION = -1;
+
+    private final GameViewPortrait gameView;
+
+    /* Touches are only sent while the game is running, this is only used on the UI thread*/
+    private boolean isEnabled;
+
+    /* The last direction sent to the game, only changes are sent*/
+    private int touchDirection = NO_DIRECTION;
+
+    /**
+     * Constructs a new router for a game.
+     *
+     * @param gameView The game view that gets the direction changes
+     */
+    public TouchRouter(GameViewPortrait gameView) {
+        this.gameView = gameView;
+    }
+
+    /**
+     * Starts or stops sending the touches to the game.
+     *
+     * @param isEnabled true while the game is running, false otherwise
+     */
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+    }
+
+    /**
+     * @return true if the touches are sent to the game, false otherwise
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+
+        /* Sends commands to the game if and only if it's running and not finished*/
+        if (!isEnabled || gameView.isFinished()) {
+            return true;
+        }
+
+        /* Only the horizontal touch point is required, and the screen is as wide as the game*/
+        int width = gameView.getWidth();
+        switch (event.getActionMasked()) {
+
+            /* Finger touched the screen*/
+            case MotionEvent.ACTION_DOWN:
+                touchDirection = NO_DIRECTION;
+                steer(event.getX(), width, event.getEventTime());
+                break;
+
+            /* Finger left the screen*/
+            case MotionEvent.ACTION_UP:
+                touchDirection = GameViewPortrait.DOWN;
+                gameView.setDirection(GameViewPortrait.DOWN, toNanos(event.getEventTime()));
+                break;
+
+            /* Finger is moving on the screen.
+             * The moves are delivered once per frame, the samples since the last
+             * delivery are kept in the history, oldest first
+             */
+            case MotionEvent.ACTION_MOVE:
+                int historySize = event.getHistorySize();
+                for (int i = 0; i < historySize; i++) {
+                    steer(event.getHistoricalX(i), width, event.getHistoricalEventTime(i));
+                }
+                steer(event.getX(), width, event.getEventTime());
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Sends the hero to the side of the screen that is touched, if it isn't going there already.
+     *
+     * @param x         The horizontal touch point
+     * @param width     The width of the game
+     * @param eventTime When the point was touched, in uptimeMillis()
+     */
+    private void steer(float x, int width, long eventTime) {
+        int direction = x > width / 2 ? GameViewPortrait.RIGHT : GameViewPortrait.LEFT;
+        if (direction != touchDirection) {
+            touchDirection = direction;
+            gameView.setDirection(direction, toNanos(eventTime));
+        }
+    }
+
+    /**
+     * Event times are uptimeMillis() based, which is the same monotonic clock
+     * as System.nanoTime() that the game thread uses.
+     *
+     * @param eventTime An event time in milliseconds
+     * @return The same time in nanoseconds
+     */
+    private static long toNanos(long eventTime) {
+        return eventTime * 1000000L;
+    }
+}
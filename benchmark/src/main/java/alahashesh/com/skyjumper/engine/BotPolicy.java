@@ -0,0 +1,38 @@
+/*
+ * BotPolicy
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The BotPolicy is an Interface that plays the game in place of a player, for the {@link BotRunner}.<br>
+ * A policy is only used by one thread, so it may keep state between the ticks of a game.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+interface BotPolicy {
+
+    /**
+     * Restarts the world for a new game.
+     *
+     * @param world The world to play on
+     * @param game  The number of the game in the run, it decides the walls (i.e. the seed)
+     *              so that runs can be repeated
+     */
+    void restart(GameWorld world, int game);
+
+    /**
+     * Sets the direction of the hero before a tick.
+     *
+     * @param world The world being played
+     */
+    void steer(GameWorld world);
+}
@@ -0,0 +1,447 @@
+/*
+ * BotRunner
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The BotRunner is a Class that plays many headless games in parallel with a bot
+ * (see {@link BotPolicy}) and reports how fast they run and how they score.<br>
+ * It's used both to measure how the game scales over the cores and to check the course
+ * itself, every wall is checked to be passable in time (see {@link #checkWall(GameWorld, int, Results)}),
+ * which is what the WALLS_MARGIN formula of the {@link GameWorld} is meant to guarantee.<br><br>
+ *
+ * The games are split over a ForkJoinPool, each worker has its own world and policy and the
+ * results are merged when the workers are done, so nothing is shared while playing.
+ * Game n always plays the same walls, so runs can be repeated and compared.<br><br>
+ *
+ * Options are given as name=value, for example:
+ * <pre>
+ *     ./gradlew :benchmark:bots -Pbots="policy=random games=5000 threads=1,2,4"
+ * </pre>
+ * <ul>
+ *     <li>policy: greedy (default), random or replay (replays games recorded by the greedy bot)</li>
+ *     <li>games: the number of games of each run, 1000 by default</li>
+ *     <li>threads: the threads of each run, comma separated, all the cores by default</li>
+ *     <li>screen: the screen, as described by {@link Screens}, 1080x1920@3 by default</li>
+ *     <li>tickRate: simulation ticks per second, 60 by default</li>
+ *     <li>maxTicks: games are stopped after this many ticks, an hour of play by default</li>
+ * </ul>
+ * The scores are only summed up over the games that the bot lost. The games that were stopped
+ * at maxTicks are counted apart, along with how long every game lasted, because a bot that
+ * never loses would otherwise report the same score for every game.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class BotRunner {
+
+    /* The number of recordings played by the replay policy*/
+    private static final int RECORDED_GAMES = 64;
+
+    /* The recorded hero is steered for this many ticks, then it falls*/
+    private static final int RECORDED_TICKS = 10000;
+
+    /* The games played before measuring, as a fraction of the measured games*/
+    private static final int WARM_UP_DIVISOR = 10;
+
+    /* Every worker gets about this many batches of games, so that the cores are kept busy
+     * when some games last longer than others
+     */
+    private static final int BATCHES_PER_THREAD = 8;
+
+    private final String policy;        /* greedy, random or replay*/
+    private final String screen;        /* The screen description*/
+    private final int tickRate;         /* Simulation ticks per second*/
+    private final int maxTicks;         /* The longest game in ticks*/
+    private final byte[][] logs;        /* The recordings of the replay policy, or null*/
+
+    /**
+     * Constructs a new runner.
+     *
+     * @param policy   greedy, random or replay
+     * @param screen   The screen description
+     * @param tickRate Simulation ticks per second
+     * @param maxTicks The longest game in ticks
+     */
+    BotRunner(String policy, String screen, int tickRate, int maxTicks) {
+        if (!policy.equals("greedy") && !policy.equals("random") && !policy.equals("replay")) {
+            throw new IllegalArgumentException("Unknown policy: " + policy);
+        }
+        this.policy = policy;
+        this.screen = screen;
+        this.tickRate = tickRate;
+        this.maxTicks = maxTicks;
+        logs = policy.equals("replay")
+                ? ReplayPolicy.record(Screens.newWorld(screen, tickRate), RECORDED_GAMES, RECORDED_TICKS)
+                : null;
+    }
+
+    public static void main(String[] args) {
+        String policy = "greedy";
+        String screen = Screens.FULL_HD;
+        int games = 1000;
+        int tickRate = FixedTimestep.DEFAULT_TICK_RATE;
+        int maxTicks = 0;
+        int[] threads = {Runtime.getRuntime().availableProcessors()};
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Expected name=value, got " + arg);
+            }
+            String name = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            if (name.equals("policy")) {
+                policy = value;
+            } else if (name.equals("screen")) {
+                screen = value;
+            } else if (name.equals("games")) {
+                games = Integer.parseInt(value);
+            } else if (name.equals("tickRate")) {
+                tickRate = Integer.parseInt(value);
+            } else if (name.equals("maxTicks")) {
+                maxTicks = Integer.parseInt(value);
+            } else if (name.equals("threads")) {
+                String[] values = value.split(",");
+                threads = new int[values.length];
+                for (int i = 0; i < values.length; i++) {
+                    threads[i] = Integer.parseInt(values[i].trim());
+                }
+            } else {
+                throw new IllegalArgumentException("Unknown option: " + name);
+            }
+        }
+        if (maxTicks <= 0) {
+
+            /* An hour of play*/
+            maxTicks = 60 * 60 * tickRate;
+        }
+
+        BotRunner runner = new BotRunner(policy, screen, tickRate, maxTicks);
+        System.out.println(String.format(Locale.US, "%s bot, %d games on %s at %d ticks/s, %d cores",
+                policy, games, screen, tickRate, Runtime.getRuntime().availableProcessors()));
+        for (int count : threads) {
+            runner.run(Math.max(1, games / WARM_UP_DIVISOR), count);
+            long start = System.nanoTime();
+            Results results = runner.run(games, count);
+            long elapsed = System.nanoTime() - start;
+            System.out.println();
+            System.out.print(results.toString(count, elapsed));
+        }
+    }
+
+    /**
+     * Plays games, from game 0 up.
+     *
+     * @param games   The number of games
+     * @param threads The number of threads to play on
+     * @return The merged results
+     */
+    Results run(int games, int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            int batch = Math.max(1, games / (threads * BATCHES_PER_THREAD));
+            return pool.invoke(new Games(0, games, batch));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return A new policy for a worker
+     */
+    private BotPolicy newPolicy() {
+        if (policy.equals("random")) {
+            return new RandomPolicy();
+        } else if (policy.equals("replay")) {
+            return new ReplayPolicy(logs);
+        }
+        return new GreedyPolicy();
+    }
+
+    /**
+     * Plays games one after the other on one thread.
+     *
+     * @param from The first game
+     * @param to   The game after the last one
+     * @return The results
+     */
+    private Results play(int from, int to) {
+        GameWorld world = Screens.newWorld(screen, tickRate);
+        BotPolicy bot = newPolicy();
+        Results results = new Results(to - from);
+        for (int game = from; game < to; game++) {
+            bot.restart(world, game);
+            int topWall = -1;
+            while (!world.isLost() && world.getTicks() < maxTicks) {
+
+                /* Check every wall when it becomes the top one*/
+                int slot = world.getTopWallSlot();
+                if (slot != topWall && slot >= 0) {
+                    checkWall(world, slot, results);
+                }
+                topWall = slot;
+
+                bot.steer(world);
+                world.tick();
+            }
+            results.addGame(world.getScore(), world.getTicks(), world.isLost());
+        }
+        return results;
+    }
+
+    /**
+     * Checks that the hero can be inside the hole of a wall before the wall reaches it.<br>
+     * This is checked when the wall becomes the top one (i.e. the hero has just passed the
+     * previous wall), from the position of the hero and from the worst position: the screen
+     * edge that is the farthest from the hole, which is what WALLS_MARGIN is computed for.
+     * A moving hole is assumed to move away from the hero.
+     *
+     * @param world   The world, after the tick that passed the previous wall
+     * @param slot    The slot of the new top wall
+     * @param results Where the check is counted
+     */
+    static void checkWall(GameWorld world, int slot, Results results) {
+        Walls walls = world.getWalls();
+        int heroWidth = world.getHeroWidth();
+
+        /* The ticks until the wall reaches the bottom of the hero*/
+        int distance = walls.getYCoordinate(slot) - (world.getY() + world.getHeroHeight());
+        int ticks = Math.max(0, distance) / world.getWallsSpeed();
+
+        /* The hero is inside the hole when holeX < x and x + heroWidth < holeX + holeSize*/
+        int holeX = walls.getHoleCoordinate(slot);
+        int first = holeX + 1;
+        int last = holeX + world.getHoleSize() - heroWidth - 1;
+        int x = world.getX();
+        int fromHero = x < first ? first - x : (x > last ? x - last : 0);
+        int fromWorst = Math.max(first, (world.getWidth() - heroWidth) - last);
+
+        int speed = world.getHeroSpeed() - (walls.isMovingWall(slot) ? world.getHolesSpeed() : 0);
+        int worstSlack = ticks - ticksToMove(fromWorst, speed);
+        results.addWall(worstSlack, ticks >= ticksToMove(fromHero, speed));
+    }
+
+    /**
+     * @param distance The distance in pixels
+     * @param speed    The speed in pixels per tick
+     * @return The ticks that it takes to move the distance, Integer.MAX_VALUE / 2 if it can't
+     */
+    private static int ticksToMove(int distance, int speed) {
+        if (distance <= 0) {
+            return 0;
+        }
+        if (speed <= 0) {
+            return Integer.MAX_VALUE / 2;
+        }
+        return (distance + speed - 1) / speed;
+    }
+
+    /**
+     * The Games is a Class that splits a range of games into batches for the ForkJoinPool.
+     */
+    private class Games extends RecursiveTask<Results> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int from;         /* The first game*/
+        private final int to;           /* The game after the last one*/
+        private final int batch;        /* Ranges up to this size are played without splitting*/
+
+        Games(int from, int to, int batch) {
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+        }
+
+        @Override
+        protected Results compute() {
+            if (to - from <= batch) {
+                return play(from, to);
+            }
+            int middle = (from + to) >>> 1;
+            Games left = new Games(from, middle, batch);
+            left.fork();
+            Results results = new Games(middle, to, batch).compute();
+            return left.join().merge(results);
+        }
+    }
+
+    /**
+     * The Results is a Class that sums up the games played by a worker, and can be merged
+     * with the results of the other workers.
+     */
+    static final class Results {
+
+        private int[] scores;           /* The score of every lost game*/
+        private int[] cappedScores;     /* The score of every game stopped after maxTicks*/
+        private int[] gameTicks;        /* The ticks of every game*/
+        private int games;              /* The number of games*/
+        private int lost;               /* The number of lost games*/
+        private int capped;             /* The number of games stopped after maxTicks*/
+        private long ticks;             /* The ticks of all the games*/
+        private int walls;              /* The number of checked walls*/
+        private int unpassable;         /* Walls that can't be passed from the worst position*/
+        private int unpassableFromHero; /* Walls that can't be passed from where the hero was*/
+        private int leastSlack = Integer.MAX_VALUE; /* The fewest spare ticks of a wall from the worst position*/
+
+        /**
+         * @param capacity The expected number of games
+         */
+        Results(int capacity) {
+            scores = new int[Math.max(1, capacity)];
+            cappedScores = new int[1];
+            gameTicks = new int[Math.max(1, capacity)];
+        }
+
+        /**
+         * Counts a game.
+         *
+         * @param score  The final score
+         * @param ticks  The ticks played
+         * @param isLost true if the bot lost, false if the game was stopped after maxTicks
+         */
+        void addGame(int score, int ticks, boolean isLost) {
+            if (isLost) {
+                scores = add(scores, lost++, score);
+            } else {
+                cappedScores = add(cappedScores, capped++, score);
+            }
+            gameTicks = add(gameTicks, games++, ticks);
+            this.ticks += ticks;
+        }
+
+        /**
+         * Sets a value of an array, the array is doubled when it's full.
+         *
+         * @param values The array
+         * @param index  The index of the value
+         * @param value  The value
+         * @return The array, or the bigger one
+         */
+        private static int[] add(int[] values, int index, int value) {
+            if (index == values.length) {
+                values = Arrays.copyOf(values, index * 2);
+            }
+            values[index] = value;
+            return values;
+        }
+
+        /**
+         * @return The first count values of a and b, one after the other
+         */
+        private static int[] concat(int[] a, int aCount, int[] b, int bCount) {
+            int[] merged = Arrays.copyOf(a, Math.max(1, aCount + bCount));
+            System.arraycopy(b, 0, merged, aCount, bCount);
+            return merged;
+        }
+
+        /**
+         * Counts a checked wall.
+         *
+         * @param worstSlack The spare ticks from the worst position, negative if it can't be passed
+         * @param isPassable Can the wall be passed from where the hero was?
+         */
+        void addWall(int worstSlack, boolean isPassable) {
+            walls++;
+            if (worstSlack < 0) {
+                unpassable++;
+            }
+            if (!isPassable) {
+                unpassableFromHero++;
+            }
+            leastSlack = Math.min(leastSlack, worstSlack);
+        }
+
+        /**
+         * Adds other results to these ones.
+         *
+         * @param other The other results
+         * @return These results
+         */
+        Results merge(Results other) {
+            scores = concat(scores, lost, other.scores, other.lost);
+            cappedScores = concat(cappedScores, capped, other.cappedScores, other.capped);
+            gameTicks = concat(gameTicks, games, other.gameTicks, other.games);
+            games += other.games;
+            lost += other.lost;
+            capped += other.capped;
+            ticks += other.ticks;
+            walls += other.walls;
+            unpassable += other.unpassable;
+            unpassableFromHero += other.unpassableFromHero;
+            leastSlack = Math.min(leastSlack, other.leastSlack);
+            return this;
+        }
+
+        /**
+         * Writes the report of a run.
+         *
+         * @param threads The number of threads of the run
+         * @param elapsed The duration of the run in nanoseconds
+         * @return The report
+         */
+        String toString(int threads, long elapsed) {
+            double seconds = elapsed / 1e9;
+            StringBuilder report = new StringBuilder();
+            report.append(String.format(Locale.US, "threads %d: %.1f games/s, %.2fM ticks/s, %.2f s%n",
+                    threads, games / seconds, ticks / seconds / 1e6, seconds));
+            report.append(String.format(Locale.US, "  lost     %d games, score %s%n",
+                    lost, distribution(scores, lost)));
+            report.append(String.format(Locale.US, "  capped   %d games stopped after maxTicks, score %s%n",
+                    capped, distribution(cappedScores, capped)));
+            report.append(String.format(Locale.US, "  ticks    %s%n", distribution(gameTicks, games)));
+            report.append(String.format(Locale.US,
+                    "  walls    %d checked, %d (%.2f%%) unpassable from the farthest edge, "
+                            + "%d from the hero, least slack %d ticks%n",
+                    walls, unpassable, walls > 0 ? 100.0 * unpassable / walls : 0, unpassableFromHero,
+                    walls > 0 ? leastSlack : 0));
+            return report.toString();
+        }
+
+        /**
+         * @param values The values, not sorted
+         * @param count  The number of values
+         * @return The mean and the percentiles of the values, or "-" if there are none
+         */
+        private static String distribution(int[] values, int count) {
+            if (count == 0) {
+                return "-";
+            }
+            int[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (int value : sorted) {
+                sum += value;
+            }
+            return String.format(Locale.US, "mean %.1f, min %d, p50 %d, p90 %d, p99 %d, max %d",
+                    (double) sum / count, percentile(sorted, 0), percentile(sorted, 0.5),
+                    percentile(sorted, 0.9), percentile(sorted, 0.99), percentile(sorted, 1));
+        }
+
+        /**
+         * @param sorted     Sorted values
+         * @param percentile The percentile, from 0 to 1
+         * @return The value at the percentile, 0 if there are no values
+         */
+        private static int percentile(int[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.min(sorted.length - 1, Math.max(0, index))];
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * FrameStatsBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The FrameStatsBenchmark is a Class that measures the cost of timing one phase
+ * (i.e. FrameStats.start() and FrameStats.stop()), with the stats enabled and disabled.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameStatsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private FrameStats stats;
+
+    @Setup
+    public void setUp() {
+        stats = new FrameStats();
+        stats.setEnabled(enabled);
+    }
+
+    @Benchmark
+    public long timePhase() {
+        long start = stats.start();
+        stats.stop(FrameStats.UPDATE, start);
+        return start;
+    }
+}
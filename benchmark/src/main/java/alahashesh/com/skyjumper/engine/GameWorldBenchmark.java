@@ -0,0 +1,67 @@
+/*
+ * GameWorldBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The GameWorldBenchmark is a Class that measures one simulation tick
+ * (i.e. what used to be updatePosition() and the collision check of every frame).
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameWorldBenchmark {
+
+    @Param({Screens.TABLET, Screens.HD, Screens.FULL_HD, Screens.TALL})
+    public String screen;
+
+    private GameWorld world;
+
+    @Setup
+    public void setUp() {
+        world = Screens.newWorld(screen);
+
+        /* Fill the screen with walls before measuring*/
+        for (int i = 0; i < 1000; i++) {
+            tick();
+        }
+    }
+
+    @Benchmark
+    public int tick() {
+        Screens.steer(world);
+        world.tick();
+        if (world.isLost()) {
+            world.restart(world.getSeed());
+        }
+        return world.getX();
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * GreedyPolicy
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The GreedyPolicy is a Class that always steers the hero towards the hole of the top wall
+ * (see {@link Screens#steer(GameWorld)}).
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+class GreedyPolicy implements BotPolicy {
+
+    @Override
+    public void restart(GameWorld world, int game) {
+        world.restart(Screens.SEED + game);
+    }
+
+    @Override
+    public void steer(GameWorld world) {
+        Screens.steer(world);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * RandomPolicy
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The RandomPolicy is a Class that steers the hero at random: every tick there is a
+ * 1 in CHANGE_ODDS chance that the hero takes a random direction.<br>
+ * The choices are seeded by the game, so a game plays the same every time.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+class RandomPolicy implements BotPolicy {
+
+    /* On average the direction changes every CHANGE_ODDS ticks*/
+    private static final int CHANGE_ODDS = 8;
+
+    /* Mixed into the seed of the walls, so that the choices don't follow the walls*/
+    private static final long SEED_MIX = 0x9E3779B97F4A7C15L;
+
+    private final XorShiftRandom random = new XorShiftRandom(0);
+
+    @Override
+    public void restart(GameWorld world, int game) {
+        world.restart(Screens.SEED + game);
+        random.setSeed((Screens.SEED + game) ^ SEED_MIX);
+    }
+
+    @Override
+    public void steer(GameWorld world) {
+        if (random.nextInt(CHANGE_ODDS) == 0) {
+            world.setDirection(random.nextInt(3));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * ReplayBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ReplayBenchmark is a Class that measures replaying recorded games headless
+ * (i.e. whole games per second rather than single ticks).<br>
+ * The games are recorded in the setup by steering the hero (for MAX_STEERED_TICKS at most, then
+ * the hero falls until it hits a wall), and every recording is replayed
+ * once and compared to the recorded score before measuring. A mismatch fails the benchmark,
+ * which means that a change altered how the game plays.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    /* The number of recorded games*/
+    private static final int GAMES = 64;
+
+    /* The steered hero can pass the walls for ever, so the recorded games are cut at this tick*/
+    private static final int MAX_STEERED_TICKS = 10000;
+
+    @Param({Screens.HD, Screens.FULL_HD})
+    public String screen;
+
+    private GameWorld world;
+    private InputReplayer[] replayers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        world = Screens.newWorld(screen);
+        InputRecorder recorder = new InputRecorder();
+        world.setRecorder(recorder);
+        replayers = new InputReplayer[GAMES];
+        for (int i = 0; i < GAMES; i++) {
+            world.restart(Screens.SEED + i);
+            while (!world.isLost()) {
+                if (world.getTicks() < MAX_STEERED_TICKS) {
+                    Screens.steer(world);
+                } else {
+                    world.setDirection(GameWorld.DOWN);
+                }
+                world.tick();
+            }
+            replayers[i] = new InputReplayer(recorder.toByteArray());
+        }
+        world.setRecorder(null);
+
+        /* Replaying must give the same results*/
+        for (InputReplayer replayer : replayers) {
+            replayer.replay(world);
+            if (!replayer.matches(world)) {
+                throw new IllegalStateException("Replay of seed " + replayer.getSeed() + " scored "
+                        + world.getScore() + " at tick " + world.getTicks() + ", recorded "
+                        + replayer.getRecordedScore() + " at tick " + replayer.getRecordedTicks());
+            }
+        }
+    }
+
+    @Benchmark
+    public int replay() {
+        InputReplayer replayer = replayers[next];
+        next = (next + 1) % GAMES;
+        return replayer.replay(world);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * ReplayPolicy
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The ReplayPolicy is a Class that plays recorded games again (see {@link InputRecorder}),
+ * one tick at a time. Game n plays the recording n modulo the number of recordings,
+ * on the walls of its recorded seed.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+class ReplayPolicy implements BotPolicy {
+
+    private final InputReplayer[] replayers;
+    private InputReplayer replayer;     /* The recording of the current game*/
+
+    /**
+     * Constructs a new policy.
+     *
+     * @param logs The recorded games, they are only read
+     */
+    ReplayPolicy(byte[][] logs) {
+        replayers = new InputReplayer[logs.length];
+        for (int i = 0; i < logs.length; i++) {
+            replayers[i] = new InputReplayer(logs[i]);
+        }
+    }
+
+    @Override
+    public void restart(GameWorld world, int game) {
+        replayer = replayers[game % replayers.length];
+        world.restart(replayer.getSeed());
+        replayer.rewind();
+    }
+
+    @Override
+    public void steer(GameWorld world) {
+        world.setDirection(replayer.getDirection(world.getTicks()));
+    }
+
+    /**
+     * Records games to be replayed, by steering the hero towards the holes.
+     * The steered hero may pass the walls for ever, so it's only steered for maxTicks,
+     * then it falls until it hits a wall.
+     *
+     * @param world    The world to play on
+     * @param games    The number of games
+     * @param maxTicks The number of ticks that the hero is steered for
+     * @return The recorded games
+     */
+    static byte[][] record(GameWorld world, int games, int maxTicks) {
+        InputRecorder recorder = new InputRecorder();
+        world.setRecorder(recorder);
+        byte[][] logs = new byte[games][];
+        for (int i = 0; i < games; i++) {
+            world.restart(Screens.SEED + i);
+            while (!world.isLost()) {
+                if (world.getTicks() < maxTicks) {
+                    Screens.steer(world);
+                } else {
+                    world.setDirection(GameWorld.DOWN);
+                }
+                world.tick();
+            }
+            logs[i] = recorder.toByteArray();
+        }
+        world.setRecorder(null);
+        return logs;
+    }
+}
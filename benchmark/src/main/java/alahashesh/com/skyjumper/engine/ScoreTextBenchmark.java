@@ -0,0 +1,58 @@
+/*
+ * ScoreTextBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The ScoreTextBenchmark is a Class that measures the JVM side of drawing the score with
+ * DigitGlyphs: measuring the score by summing the widths of its digits, and splitting it into
+ * digits for drawing, both done by {@link Digits} as DigitGlyphs does them.<br>
+ * DigitGlyphs itself renders the digits with android.graphics, which doesn't exist on a plain
+ * JVM, so the widths are fixed here and copying the glyphs is not part of this benchmark.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreTextBenchmark {
+
+    /* Advance widths of the digits 0 to 9, as a proportional font at the score text size has them*/
+    private static final int[] WIDTHS = {56, 41, 54, 55, 57, 55, 56, 50, 56, 56};
+
+    private final int[] digits = new int[Digits.MAX_DIGITS];
+    private int score;
+
+    @Benchmark
+    public int measureAndSplit() {
+        score = (score + 1) % 1000;
+
+        int width = Digits.measure(score, WIDTHS);
+        int count = Digits.split(score, digits);
+        return width + digits[count - 1];
+    }
+}
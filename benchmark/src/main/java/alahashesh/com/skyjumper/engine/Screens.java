@@ -0,0 +1,128 @@
+/*
+ * Screens
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The Screens is a Class that builds game worlds for the benchmarks.<br>
+ * Screens are described as "WIDTHxHEIGHT@DENSITY" (e.g. "1080x1920@3").<br><br>
+ *
+ * The distance between walls depends on the screen width, so the aspect ratio of the
+ * screen decides how many walls are visible at once (i.e. the wall density):
+ * a 4:3 tablet has about two walls on the screen while a 20:9 phone has about four.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+final class Screens {
+
+    /* The screens used by the benchmarks, from the fewest walls to the most*/
+    static final String TABLET = "1536x2048@2";
+    static final String HD = "720x1280@2";
+    static final String FULL_HD = "1080x1920@3";
+    static final String TALL = "1440x3200@4";
+
+    /* The seed of the walls, fixed so that runs can be compared*/
+    static final long SEED = 2015;
+
+    private Screens() {
+    }
+
+    /**
+     * Builds a world for a screen, with synthetic sprites.
+     *
+     * @param screen The screen description
+     * @return A new world
+     */
+    static GameWorld newWorld(String screen) {
+        return newWorld(screen, FixedTimestep.DEFAULT_TICK_RATE);
+    }
+
+    /**
+     * Builds a world for a screen, with synthetic sprites.
+     *
+     * @param screen   The screen description
+     * @param tickRate Simulation ticks per second
+     * @return A new world
+     */
+    static GameWorld newWorld(String screen, int tickRate) {
+        int x = screen.indexOf('x');
+        int at = screen.indexOf('@');
+        int width = Integer.parseInt(screen.substring(0, x));
+        int height = Integer.parseInt(screen.substring(x + 1, at));
+        float density = Float.parseFloat(screen.substring(at + 1));
+
+        GameWorld world = new GameWorld(width, height, density, tickRate);
+        int[] hero = heroPixels(world.getHeroWidth(), world.getHeroHeight());
+        world.setHeroPixels(GameWorld.DOWN, hero);
+        world.setHeroPixels(GameWorld.LEFT, hero);
+        world.setHeroPixels(GameWorld.RIGHT, hero);
+        int[] wall = wallPixels(world.getWidth(), world.getWallThickness());
+        world.setWallPixels(GameWorld.WALL_LEFT, wall);
+        world.setWallPixels(GameWorld.WALL_RIGHT, wall);
+
+        /* Every run plays the same walls*/
+        world.restart(SEED);
+        return world;
+    }
+
+    /**
+     * Steers the hero towards the hole of the top wall, so that games last long enough
+     * to measure the game rather than restarts.
+     *
+     * @param world The world to steer
+     */
+    static void steer(GameWorld world) {
+        int topWall = world.getTopWallSlot();
+        if (topWall < 0) {
+            world.setDirection(GameWorld.DOWN);
+            return;
+        }
+        int holeCenter = world.getWalls().getHoleCoordinate(topWall) + world.getHoleSize() / 2;
+        int heroCenter = world.getX() + world.getHeroWidth() / 2;
+        int tolerance = world.getHoleSize() / 4;
+        if (heroCenter < holeCenter - tolerance) {
+            world.setDirection(GameWorld.RIGHT);
+        } else if (heroCenter > holeCenter + tolerance) {
+            world.setDirection(GameWorld.LEFT);
+        } else {
+            world.setDirection(GameWorld.DOWN);
+        }
+    }
+
+    /**
+     * @return An elliptic hero, transparent in the corners like the real sprites
+     */
+    private static int[] heroPixels(int width, int height) {
+        int[] pixels = new int[width * height];
+        float a = width / 2f;
+        float b = height / 2f;
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                float dx = (j + 0.5f - a) / a;
+                float dy = (i + 0.5f - b) / b;
+                pixels[i * width + j] = dx * dx + dy * dy <= 1 ? 0xffffffff : 0;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return A fully opaque wall
+     */
+    private static int[] wallPixels(int width, int thickness) {
+        int[] pixels = new int[width * thickness];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff808080;
+        }
+        return pixels;
+    }
+}
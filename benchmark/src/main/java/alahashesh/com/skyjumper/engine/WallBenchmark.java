@@ -0,0 +1,69 @@
+/*
+ * WallBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WallBenchmark is a Class that measures moving the holes of the walls
+ * (i.e. Walls.move() which moves every wall and the holes of the moving ones).<br>
+ * One operation updates all the walls of one frame.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WallBenchmark {
+
+    /* The number of walls on the screen*/
+    @Param({"2", "4", "8"})
+    public int walls;
+
+    private Walls wallsRing;
+
+    @Setup
+    public void setUp() {
+        wallsRing = new Walls(walls, 864, new XorShiftRandom(walls));
+        for (int i = 0; i < walls; i++) {
+            /* Every other wall is a moving one*/
+            wallsRing.add(0, i % 2 == 0 ? 3 : 0);
+        }
+    }
+
+    @Benchmark
+    public int updateHoles() {
+        /* Don't move the walls up so that the numbers stay small*/
+        wallsRing.move(0);
+        int sum = 0;
+        for (int i = 0; i < wallsRing.size(); i++) {
+            sum += wallsRing.getHoleCoordinate(wallsRing.getSlot(i));
+        }
+        return sum;
+    }
+}
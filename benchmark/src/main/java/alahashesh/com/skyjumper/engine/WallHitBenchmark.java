@@ -0,0 +1,83 @@
+/*
+ * WallHitBenchmark
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The WallHitBenchmark is a Class that measures the pixel collision check between
+ * the hero and a wall.<br>
+ * The hero is placed so that its lower half overlaps the wall, either inside the hole,
+ * on the edge of the hole or right above the wall. It's also placed a little over the edge
+ * of the hole while entering the wall, so that only its transparent corner is over the wall.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WallHitBenchmark {
+
+    @Param({Screens.HD, Screens.FULL_HD, Screens.TALL})
+    public String screen;
+
+    @Param({"hole", "near", "edge", "wall"})
+    public String placement;
+
+    private GameWorld world;
+    private int wallY;
+    private int holeX;
+
+    @Setup
+    public void setUp() {
+        world = Screens.newWorld(screen);
+        int heroWidth = world.getHeroWidth();
+        int heroHeight = world.getHeroHeight();
+        holeX = (world.getWidth() - world.getHoleSize()) / 2;
+        int heroY = world.getHeight() / 8;
+        wallY = heroY + heroHeight / 2;
+
+        int heroX;
+        if ("hole".equals(placement)) {
+            heroX = holeX + (world.getHoleSize() - heroWidth) / 2;
+        } else if ("near".equals(placement)) {
+            heroX = holeX - heroWidth / 10;
+            wallY = heroY + heroHeight * 7 / 8;
+        } else if ("edge".equals(placement)) {
+            heroX = holeX - heroWidth / 2;
+        } else {
+            heroX = holeX - 2 * heroWidth;
+        }
+        world.placeHero(heroX, heroY, GameWorld.DOWN);
+    }
+
+    @Benchmark
+    public boolean isWallHit() {
+        return world.isWallHit(wallY, holeX);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * CollisionMask
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The CollisionMask is a Class that holds which pixels of a sprite are visible.<br>
+ * Every row is packed into 64 bit words (bit j of word k is the column 64 * k + j), so that
+ * two sprites can be checked for a collision 64 pixels at a time using AND operations.<br><br>
+ *
+ * Masks are built once when the sprites are loaded. Along with the bits every mask keeps the
+ * first and last visible pixel of each row and each column, which tell how far two sprites can
+ * move towards each other before touching, and the first and last visible column of the whole
+ * sprite, which tell if two sprites can touch at all.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class CollisionMask {
+
+    private final int width;            /* Sprite width*/
+    private final int height;           /* Sprite height*/
+    private final int words;            /* Number of words in each row*/
+    private final long[] bits;          /* The rows, one after the other*/
+
+    private int[] rowFirst;             /* First visible column of each row, or -1*/
+    private int[] rowLast;              /* Last visible column of each row, or -1*/
+    private int[] columnTop;            /* First visible row of each column, or -1*/
+    private int[] columnBottom;         /* Last visible row of each column, or -1*/
+    private int first = -1;             /* First visible column of the sprite, or -1*/
+    private int last = -1;              /* Last visible column of the sprite, or -1*/
+
+    /**
+     * Constructs an empty (i.e. fully transparent) mask.
+     *
+     * @param width  Sprite width
+     * @param height Sprite height
+     */
+    private CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        words = (width + 63) >>> 6;
+        bits = new long[words * height];
+    }
+
+    /**
+     * Builds a mask from the pixels of a sprite.
+     *
+     * @param pixels ARGB pixels, row by row
+     * @param width  Sprite width
+     * @param height Sprite height
+     * @return A mask where every pixel that isn't fully transparent is set
+     */
+    public static CollisionMask fromPixels(int[] pixels, int width, int height) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Expected " + width * height + " pixels, got " + pixels.length);
+        }
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int i = 0; i < height; i++) {
+            int row = i * mask.words;
+            for (int j = 0; j < width; j++) {
+                if ((pixels[i * width + j] & 0xff000000) != 0) {
+                    mask.bits[row + (j >>> 6)] |= 1L << j;
+                }
+            }
+        }
+        mask.buildProfiles();
+        return mask;
+    }
+
+    /**
+     * Builds a fully opaque mask, used when the pixels of a sprite are unknown.
+     *
+     * @param width  Sprite width
+     * @param height Sprite height
+     * @return A mask where every pixel is set
+     */
+    public static CollisionMask opaque(int width, int height) {
+        CollisionMask mask = new CollisionMask(width, height);
+        for (int i = 0; i < height; i++) {
+            int row = i * mask.words;
+            for (int j = 0; j < width; j++) {
+                mask.bits[row + (j >>> 6)] |= 1L << j;
+            }
+        }
+        mask.buildProfiles();
+        return mask;
+    }
+
+    /**
+     * Writes the mask as runs of visible pixels, so that a recorded game keeps the sprites it
+     * was played with (see {@link InputRecorder}).
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeShort(width);
+        out.writeShort(height);
+        for (int i = 0; i < height; i++) {
+
+            /* Count the runs of the row, then write where each one starts and how long it is*/
+            int runs = 0;
+            for (int j = 0; j < width; j++) {
+                if (isOpaque(j, i) && (j == 0 || !isOpaque(j - 1, i))) {
+                    runs++;
+                }
+            }
+            out.writeShort(runs);
+            int j = 0;
+            while (runs > 0) {
+                while (!isOpaque(j, i)) {
+                    j++;
+                }
+                int start = j;
+                while (j < width && isOpaque(j, i)) {
+                    j++;
+                }
+                out.writeShort(start);
+                out.writeShort(j - start);
+                runs--;
+            }
+        }
+    }
+
+    /**
+     * Reads a mask written by {@link #write(DataOutput)}.
+     *
+     * @param in Where to read from
+     * @return The mask
+     * @throws IOException If reading fails or the mask is corrupt
+     */
+    static CollisionMask read(DataInput in) throws IOException {
+        CollisionMask mask = new CollisionMask(in.readUnsignedShort(), in.readUnsignedShort());
+        for (int i = 0; i < mask.height; i++) {
+            int row = i * mask.words;
+            int runs = in.readUnsignedShort();
+            for (int k = 0; k < runs; k++) {
+                int start = in.readUnsignedShort();
+                int end = start + in.readUnsignedShort();
+                if (end > mask.width) {
+                    throw new IOException("Corrupt mask row " + i);
+                }
+                for (int j = start; j < end; j++) {
+                    mask.bits[row + (j >>> 6)] |= 1L << j;
+                }
+            }
+        }
+        mask.buildProfiles();
+        return mask;
+    }
+
+    /**
+     * Finds the first and last visible pixel of every row and every column.
+     */
+    private void buildProfiles() {
+        rowFirst = new int[height];
+        rowLast = new int[height];
+        columnTop = new int[width];
+        columnBottom = new int[width];
+        for (int j = 0; j < width; j++) {
+            columnTop[j] = -1;
+            columnBottom[j] = -1;
+        }
+        for (int i = 0; i < height; i++) {
+            rowFirst[i] = -1;
+            rowLast[i] = -1;
+            int rowStart = i * words;
+            for (int k = 0; k < words; k++) {
+                long word = bits[rowStart + k];
+                if (word == 0) {
+                    continue;
+                }
+                if (rowFirst[i] < 0) {
+                    rowFirst[i] = (k << 6) + Long.numberOfTrailingZeros(word);
+                }
+                rowLast[i] = (k << 6) + 63 - Long.numberOfLeadingZeros(word);
+
+                /* Visit only the visible columns of this word*/
+                while (word != 0) {
+                    int j = (k << 6) + Long.numberOfTrailingZeros(word);
+                    if (columnTop[j] < 0) {
+                        columnTop[j] = i;
+                    }
+                    columnBottom[j] = i;
+                    word &= word - 1;
+                }
+            }
+            if (rowFirst[i] >= 0) {
+                first = first < 0 ? rowFirst[i] : Math.min(first, rowFirst[i]);
+                last = Math.max(last, rowLast[i]);
+            }
+        }
+    }
+
+    /**
+     * @return Sprite width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Sprite height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The approximate memory used by the mask, in bytes
+     */
+    public int getByteCount() {
+        return bits.length * 8 + (rowFirst.length + rowLast.length + columnTop.length + columnBottom.length) * 4;
+    }
+
+    /**
+     * @param column Pixel x coordinate
+     * @param row    Pixel y coordinate
+     * @return true if this pixel is visible, false otherwise (or if it's outside the sprite)
+     */
+    public boolean isOpaque(int column, int row) {
+        return (getBits(row, column) & 1L) != 0;
+    }
+
+    /**
+     * Returns 64 pixels of a row at once. Bit j of the result is the pixel at column + j.<br>
+     * Pixels outside the sprite are considered transparent, so the column may be negative
+     * or past the sprite width.
+     *
+     * @param row    Row index, must be inside the sprite
+     * @param column The first column
+     * @return The visible pixels of the 64 columns starting at column
+     */
+    public long getBits(int row, int column) {
+        if (column >= width || column <= -64) {
+            return 0;
+        }
+        int word = column >> 6;
+        int offset = column & 63;
+        int rowStart = row * words;
+        long low = word >= 0 ? bits[rowStart + word] : 0;
+        if (offset == 0) {
+            return low;
+        }
+        long high = word + 1 < words ? bits[rowStart + word + 1] : 0;
+        return (low >>> offset) | (high << (64 - offset));
+    }
+
+    /**
+     * @return The first visible column of the sprite, or -1 if the sprite is transparent
+     */
+    public int getFirst() {
+        return first;
+    }
+
+    /**
+     * @return The last visible column of the sprite, or -1 if the sprite is transparent
+     */
+    public int getLast() {
+        return last;
+    }
+
+    /**
+     * @param row Row index
+     * @return The first visible column of the row, or -1 if the row is transparent or outside the sprite
+     */
+    public int getRowFirst(int row) {
+        return row >= 0 && row < height ? rowFirst[row] : -1;
+    }
+
+    /**
+     * @param row Row index
+     * @return The last visible column of the row, or -1 if the row is transparent or outside the sprite
+     */
+    public int getRowLast(int row) {
+        return row >= 0 && row < height ? rowLast[row] : -1;
+    }
+
+    /**
+     * @param column Column index
+     * @return The first visible row of the column, or -1 if the column is transparent or outside the sprite
+     */
+    public int getColumnTop(int column) {
+        return column >= 0 && column < width ? columnTop[column] : -1;
+    }
+
+    /**
+     * @param column Column index
+     * @return The last visible row of the column, or -1 if the column is transparent or outside the sprite
+     */
+    public int getColumnBottom(int column) {
+        return column >= 0 && column < width ? columnBottom[column] : -1;
+    }
+
+    /**
+     * Checks if a row of this mask overlaps a row of another mask.
+     *
+     * @param row         Row of this mask
+     * @param x           The x coordinate of this mask on the screen
+     * @param other       The other mask
+     * @param otherRow    Row of the other mask
+     * @param otherX      The x coordinate of the other mask on the screen
+     * @return true if a visible pixel of this row is on top of a visible pixel of the other row
+     */
+    public boolean overlapsRow(int row, int x, CollisionMask other, int otherRow, int otherX) {
+        int rowStart = row * words;
+        int shift = x - otherX;
+        for (int k = 0; k < words; k++) {
+            long mine = bits[rowStart + k];
+            if (mine != 0 && (mine & other.getBits(otherRow, shift + (k << 6))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
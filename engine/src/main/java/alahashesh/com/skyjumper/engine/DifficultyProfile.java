@@ -0,0 +1,320 @@
+/*
+ * DifficultyProfile
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The DifficultyProfile is a Class that tells how hard the game is at every score.<br>
+ * A profile is a table of rows, every row gives the speeds of the hero, the walls and the holes
+ * and how often a wall has a moving hole, starting from a score. Between two rows the values
+ * are interpolated linearly, a sudden speed up is written as two rows one score apart.
+ * The values of the last row are kept for every higher score.<br><br>
+ *
+ * Profiles are read from text so that the game can be tuned without changing the code:
+ * <pre>
+ *     # Comments start with '#'
+ *     columns 5
+ *     # score  hero  walls  holes  moving
+ *     0        7     5      1      5
+ *     29       7     5      1      5
+ *     30       8     6      1      5
+ * </pre>
+ * The hole is as wide as the screen divided by the columns. Speeds are in dp per frame, as
+ * tuned for {@link FixedTimestep#DEFAULT_TICK_RATE} frames per second, and "moving" means that
+ * every moving-th wall has a moving hole.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class DifficultyProfile {
+
+    /* The highest score that a row can start from, GameWorld keeps the values for every score up to the last row*/
+    public static final int MAX_SCORE = 10000;
+
+    /* The profile that the game was tuned with, the hero and the walls speed up at 30 and at 100*/
+    public static final DifficultyProfile DEFAULT = new DifficultyProfile(5,
+            new int[]{0, 29, 30, 99, 100},
+            new float[]{7, 7, 8, 8, 9},
+            new float[]{5, 5, 6, 6, 7},
+            new float[]{1, 1, 1, 1, 1},
+            new int[]{5, 5, 5, 5, 5});
+
+    private final int columns;              /* The screen width divided by the hole size*/
+    private final int[] scores;             /* The score that each row starts from, ascending*/
+    private final float[] heroSpeeds;       /* Hero speed of each row in dp*/
+    private final float[] wallsSpeeds;      /* Walls speed of each row in dp*/
+    private final float[] holesSpeeds;      /* Moving holes speed of each row in dp*/
+    private final int[] movingHolesTimes;   /* Every how many walls a moving one comes, for each row*/
+
+    /**
+     * Constructs a new profile, the arrays have one value for each row.
+     *
+     * @param columns          The screen width divided by the hole size
+     * @param scores           The score that each row starts from, the first one is 0 and they're ascending
+     * @param heroSpeeds       Hero speeds in dp
+     * @param wallsSpeeds      Walls speeds in dp
+     * @param holesSpeeds      Moving holes speeds in dp
+     * @param movingHolesTimes Every how many walls a wall has a moving hole (e.g. 1 for all walls)
+     * @throws IllegalArgumentException If the profile isn't valid
+     */
+    public DifficultyProfile(int columns, int[] scores, float[] heroSpeeds, float[] wallsSpeeds,
+                             float[] holesSpeeds, int[] movingHolesTimes) {
+        int rows = scores.length;
+        if (columns < 2) {
+            throw new IllegalArgumentException("Invalid columns: " + columns);
+        }
+        if (rows == 0 || heroSpeeds.length != rows || wallsSpeeds.length != rows
+                || holesSpeeds.length != rows || movingHolesTimes.length != rows) {
+            throw new IllegalArgumentException("Every row must have all the values");
+        }
+        if (scores[0] != 0) {
+            throw new IllegalArgumentException("The first row must start from score 0");
+        }
+        for (int i = 0; i < rows; i++) {
+            if (i > 0 && scores[i] <= scores[i - 1]) {
+                throw new IllegalArgumentException("Scores must be ascending: " + scores[i]);
+            }
+            if (scores[i] > MAX_SCORE) {
+                throw new IllegalArgumentException("Score is over " + MAX_SCORE + ": " + scores[i]);
+            }
+            if (!(heroSpeeds[i] > 0) || !(wallsSpeeds[i] > 0) || !(holesSpeeds[i] > 0)) {
+                throw new IllegalArgumentException("Speeds must be positive, at score " + scores[i]);
+            }
+            if (movingHolesTimes[i] < 1) {
+                throw new IllegalArgumentException("Invalid moving holes time: " + movingHolesTimes[i]);
+            }
+        }
+        this.columns = columns;
+        this.scores = scores.clone();
+        this.heroSpeeds = heroSpeeds.clone();
+        this.wallsSpeeds = wallsSpeeds.clone();
+        this.holesSpeeds = holesSpeeds.clone();
+        this.movingHolesTimes = movingHolesTimes.clone();
+    }
+
+    /**
+     * Reads a profile written as text (see the format above).
+     *
+     * @param in The text, it isn't closed
+     * @return The profile
+     * @throws IOException              If reading fails
+     * @throws IllegalArgumentException If the profile isn't valid
+     */
+    public static DifficultyProfile read(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        int columns = 0;
+        List<String[]> rows = new ArrayList<>();
+        List<Integer> lines = new ArrayList<>();
+        String line;
+        int number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] values = line.split("\\s+");
+            if (values[0].equals("columns") && values.length == 2) {
+                columns = parseInt(values[1], number);
+            } else if (values.length == 5) {
+                rows.add(values);
+                lines.add(number);
+            } else {
+                throw new IllegalArgumentException("Line " + number + ": expected 5 values, got \"" + line + "\"");
+            }
+        }
+
+        int count = rows.size();
+        int[] scores = new int[count];
+        float[] heroSpeeds = new float[count];
+        float[] wallsSpeeds = new float[count];
+        float[] holesSpeeds = new float[count];
+        int[] movingHolesTimes = new int[count];
+        for (int i = 0; i < count; i++) {
+            String[] values = rows.get(i);
+            number = lines.get(i);
+            scores[i] = parseInt(values[0], number);
+            heroSpeeds[i] = parseFloat(values[1], number);
+            wallsSpeeds[i] = parseFloat(values[2], number);
+            holesSpeeds[i] = parseFloat(values[3], number);
+            movingHolesTimes[i] = parseInt(values[4], number);
+        }
+        return new DifficultyProfile(columns, scores, heroSpeeds, wallsSpeeds, holesSpeeds, movingHolesTimes);
+    }
+
+    /**
+     * Writes the profile, so that a recorded game keeps the difficulty it was played with
+     * (see {@link InputRecorder}).
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(columns);
+        out.writeInt(scores.length);
+        for (int i = 0; i < scores.length; i++) {
+            out.writeInt(scores[i]);
+            out.writeFloat(heroSpeeds[i]);
+            out.writeFloat(wallsSpeeds[i]);
+            out.writeFloat(holesSpeeds[i]);
+            out.writeInt(movingHolesTimes[i]);
+        }
+    }
+
+    /**
+     * Reads a profile written by {@link #write(DataOutput)}.
+     *
+     * @param in Where to read from
+     * @return The profile
+     * @throws IOException If reading fails or the profile isn't valid
+     */
+    static DifficultyProfile read(DataInput in) throws IOException {
+        int columns = in.readInt();
+        int count = in.readInt();
+        if (count < 1 || count > MAX_SCORE + 1) {
+            throw new IOException("Invalid number of rows: " + count);
+        }
+        int[] scores = new int[count];
+        float[] heroSpeeds = new float[count];
+        float[] wallsSpeeds = new float[count];
+        float[] holesSpeeds = new float[count];
+        int[] movingHolesTimes = new int[count];
+        for (int i = 0; i < count; i++) {
+            scores[i] = in.readInt();
+            heroSpeeds[i] = in.readFloat();
+            wallsSpeeds[i] = in.readFloat();
+            holesSpeeds[i] = in.readFloat();
+            movingHolesTimes[i] = in.readInt();
+        }
+        try {
+            return new DifficultyProfile(columns, scores, heroSpeeds, wallsSpeeds, holesSpeeds, movingHolesTimes);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return The screen width divided by the hole size
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return The score of the last row, nothing changes after it
+     */
+    public int getLastScore() {
+        return scores[scores.length - 1];
+    }
+
+    /**
+     * @param score A score
+     * @return The hero speed at the score in dp
+     */
+    public float getHeroSpeed(int score) {
+        return interpolate(heroSpeeds, score);
+    }
+
+    /**
+     * @param score A score
+     * @return The walls speed at the score in dp
+     */
+    public float getWallsSpeed(int score) {
+        return interpolate(wallsSpeeds, score);
+    }
+
+    /**
+     * @param score A score
+     * @return The moving holes speed at the score in dp
+     */
+    public float getHolesSpeed(int score) {
+        return interpolate(holesSpeeds, score);
+    }
+
+    /**
+     * @param score A score
+     * @return Every how many walls a wall has a moving hole at the score
+     */
+    public int getMovingHolesTime(int score) {
+        int row = getRow(score);
+        if (row + 1 == scores.length) {
+            return movingHolesTimes[row];
+        }
+        float fraction = (float) (score - scores[row]) / (scores[row + 1] - scores[row]);
+        return Math.round(movingHolesTimes[row] + (movingHolesTimes[row + 1] - movingHolesTimes[row]) * fraction);
+    }
+
+    /**
+     * Interpolates a value of the rows.
+     *
+     * @param values The values of the rows
+     * @param score  A score
+     * @return The value at the score
+     */
+    private float interpolate(float[] values, int score) {
+        int row = getRow(score);
+        if (row + 1 == scores.length) {
+            return values[row];
+        }
+        float fraction = (float) (score - scores[row]) / (scores[row + 1] - scores[row]);
+        return values[row] + (values[row + 1] - values[row]) * fraction;
+    }
+
+    /**
+     * @param score A score
+     * @return The last row that starts at or before the score
+     */
+    private int getRow(int score) {
+        int row = 0;
+        while (row + 1 < scores.length && scores[row + 1] <= score) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * @param value A number in the text
+     * @param line  The line of the number, for the error message
+     * @return The number
+     */
+    private static int parseInt(String value, int line) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + line + ": not a number \"" + value + "\"");
+        }
+    }
+
+    /**
+     * @param value A number in the text
+     * @param line  The line of the number, for the error message
+     * @return The number
+     */
+    private static float parseFloat(String value, int line) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Line " + line + ": not a number \"" + value + "\"");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Digits
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The Digits is a Class that works on the decimal digits of a number straight from the int,
+ * without a String, so that a number can be measured and drawn every frame without allocating.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public final class Digits {
+
+    /* The most digits of an int*/
+    public static final int MAX_DIGITS = 10;
+
+    private Digits() {
+    }
+
+    /**
+     * Splits a number into its digits.
+     *
+     * @param value  A non negative number
+     * @param digits Receives the digits, the last digit first; at least {@link #MAX_DIGITS} long
+     * @return The number of digits
+     */
+    public static int split(int value, int[] digits) {
+        int count = 0;
+        do {
+            digits[count++] = value % 10;
+            value /= 10;
+        } while (value > 0);
+        return count;
+    }
+
+    /**
+     * Measures a number.
+     *
+     * @param value  A non negative number
+     * @param widths The width of each digit, 0 to 9
+     * @return The sum of the widths of the digits of the number
+     */
+    public static int measure(int value, int[] widths) {
+        int width = 0;
+        do {
+            width += widths[value % 10];
+            value /= 10;
+        } while (value > 0);
+        return width;
+    }
+}
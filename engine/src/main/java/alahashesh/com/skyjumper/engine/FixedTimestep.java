@@ -0,0 +1,141 @@
+/*
+ * FixedTimestep
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The FixedTimestep is a Class that converts real elapsed time into a number of
+ * fixed simulation ticks.<br>
+ * Elapsed time is collected into an accumulator, and every full tick interval
+ * in it becomes one simulation tick. What is left over is exposed as an interpolation
+ * factor, so that rendering can be done in between two ticks.<br><br>
+ *
+ * When a frame is very late only a limited number of ticks is returned, the rest
+ * of the elapsed time is dropped. This avoids the so called "spiral of death".
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class FixedTimestep {
+
+    /* The default number of simulation ticks per second*/
+    public static final int DEFAULT_TICK_RATE = 60;
+
+    /* The default maximum number of ticks that can be run to catch up a late frame*/
+    public static final int DEFAULT_MAX_CATCH_UP_TICKS = 5;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private int tickRate;               /* Ticks per second*/
+    private long tickNanos;             /* Length of one tick in nanoseconds*/
+    private int maxCatchUpTicks;        /* Maximum ticks returned by one advance call*/
+    private long accumulator;           /* Elapsed time that has not been simulated yet*/
+    private long lastTime;              /* The time of the last advance call*/
+    private boolean isStarted;          /* Has advance been called since the last reset?*/
+
+    /**
+     * Constructs a new timestep using the default tick rate.
+     */
+    public FixedTimestep() {
+        this(DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP_TICKS);
+    }
+
+    /**
+     * Constructs a new timestep.
+     *
+     * @param tickRate        Simulation ticks per second
+     * @param maxCatchUpTicks Maximum ticks that one advance call can return
+     */
+    public FixedTimestep(int tickRate, int maxCatchUpTicks) {
+        setTickRate(tickRate);
+        this.maxCatchUpTicks = Math.max(1, maxCatchUpTicks);
+    }
+
+    /**
+     * Sets the number of simulation ticks per second.
+     *
+     * @param tickRate Ticks per second, must be positive
+     */
+    public void setTickRate(int tickRate) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate must be positive: " + tickRate);
+        }
+        this.tickRate = tickRate;
+        tickNanos = NANOS_PER_SECOND / tickRate;
+    }
+
+    /**
+     * @return Simulation ticks per second
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return Length of one tick in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Forgets any accumulated time. The next call to {@link #advance(long)} starts counting again.
+     */
+    public void reset() {
+        accumulator = 0;
+        isStarted = false;
+    }
+
+    /**
+     * Adds the time elapsed since the last call to the accumulator.
+     *
+     * @param nowNanos Current monotonic time in nanoseconds (i.e. System.nanoTime())
+     * @return The number of ticks that must be simulated now
+     */
+    public int advance(long nowNanos) {
+        if (!isStarted) {
+            isStarted = true;
+            lastTime = nowNanos;
+            return 0;
+        }
+        long elapsed = nowNanos - lastTime;
+        lastTime = nowNanos;
+        if (elapsed > 0) {
+            accumulator += elapsed;
+        }
+
+        int ticks = (int) Math.min(accumulator / tickNanos, maxCatchUpTicks);
+        accumulator -= ticks * tickNanos;
+
+        /* We are too late, drop the time that we can't catch up with*/
+        if (accumulator >= tickNanos) {
+            accumulator %= tickNanos;
+        }
+        return ticks;
+    }
+
+    /**
+     * Returns the time that the last due tick stands for, the ticks before it are
+     * one tick length apart.
+     *
+     * @return The time of the last advance call minus the time that hasn't been simulated yet
+     */
+    public long getTickTime() {
+        return lastTime - accumulator;
+    }
+
+    /**
+     * @return How far we are between the last tick and the next one, in the range [0, 1)
+     */
+    public float getAlpha() {
+        return (float) accumulator / tickNanos;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * FrameStats
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The FrameStats is a Class that measures how long each phase of a frame takes.<br>
+ * Every phase has its own {@link Histogram}, and frames that come later than one and a half
+ * frame budgets after the previous one are counted as missed.<br><br>
+ *
+ * Timers are started with {@link #start()} and stopped with {@link #stop(int, long)}, both
+ * do nothing but a field read when the stats are disabled. The clock is System.nanoTime(),
+ * which is monotonic.<br>
+ * The number of frames, their average and worst time and the missed frames are always counted
+ * (it only takes a few additions per frame), so that every game session can be summarized.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class FrameStats {
+
+    /* Phases definition*/
+    public static final int UPDATE = 0;     /* Simulating the due ticks, collisions included*/
+    public static final int COLLISION = 1;  /* Checking the top wall for a collision*/
+    public static final int DRAW = 2;       /* Locking the surface and drawing the frame*/
+    public static final int POST = 3;       /* Posting the frame to the display*/
+    public static final int FRAME = 4;      /* The time between the start of two frames*/
+    public static final int INPUT = 5;      /* From a touch until the frame that shows it is posted*/
+    public static final int PHASES = 6;
+
+    private final Histogram[] histograms = new Histogram[PHASES];
+
+    private volatile boolean isEnabled;
+
+    /* A longer time between two frames means that the game was paused*/
+    private static final long MAX_FRAME_INTERVAL = 1000000000L;
+
+    private volatile long frameBudget;  /* The time between two frames in nanoseconds, 0 if unknown*/
+    private long lastFrameStart;        /* When the last frame started, 0 before the first one*/
+
+    /* Only the frames thread writes lastFrameStart, the other threads ask it to forget the last frame*/
+    private volatile boolean isFrameResetRequested;
+    private volatile long missedFrames; /* The number of frames that came too late*/
+    private volatile long frames;       /* The number of frames*/
+    private volatile long framesTime;   /* The sum of the time between the frames*/
+    private volatile long worstFrame;   /* The longest time between two frames*/
+
+    /**
+     * Constructs new, disabled, stats.
+     */
+    public FrameStats() {
+        for (int i = 0; i < PHASES; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    /**
+     * Enables or disables the stats. The collected values are kept.
+     *
+     * @param isEnabled true to time the phases, false otherwise
+     */
+    public void setEnabled(boolean isEnabled) {
+        this.isEnabled = isEnabled;
+        isFrameResetRequested = true;
+    }
+
+    /**
+     * @return true if the phases are being timed, false otherwise
+     */
+    public boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * @param frameBudget The time between two frames in nanoseconds
+     */
+    public void setFrameBudget(long frameBudget) {
+        this.frameBudget = frameBudget;
+    }
+
+    /**
+     * @return The time between two frames in nanoseconds, 0 if unknown
+     */
+    public long getFrameBudget() {
+        return frameBudget;
+    }
+
+    /**
+     * Starts a timer.
+     *
+     * @return The start time, or 0 if the stats are disabled
+     */
+    public long start() {
+        return isEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Stops a timer and records the elapsed time.
+     *
+     * @param phase The phase that was timed
+     * @param start The value returned by {@link #start()}, or an earlier System.nanoTime() value
+     *              (e.g. the time of a touch event)
+     */
+    public void stop(int phase, long start) {
+        if (start != 0 && isEnabled) {
+            histograms[phase].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Marks the start of a frame. The time since the previous frame is counted, and recorded
+     * in the {@link #FRAME} phase if the stats are enabled.
+     *
+     * @param now System.nanoTime() at the start of the frame
+     */
+    public void frame(long now) {
+        if (isFrameResetRequested) {
+            isFrameResetRequested = false;
+            lastFrameStart = 0;
+        }
+        long interval = now - lastFrameStart;
+        boolean isFirst = lastFrameStart == 0;
+        lastFrameStart = now;
+
+        /* Pauses aren't frames*/
+        if (isFirst || interval > MAX_FRAME_INTERVAL) {
+            return;
+        }
+        frames++;
+        framesTime += interval;
+        if (interval > worstFrame) {
+            worstFrame = interval;
+        }
+        if (frameBudget > 0 && interval > frameBudget + frameBudget / 2) {
+            missedFrames++;
+        }
+        if (isEnabled) {
+            histograms[FRAME].record(interval);
+        }
+    }
+
+    /**
+     * @param phase A phase
+     * @return The histogram of the phase
+     */
+    public Histogram getHistogram(int phase) {
+        return histograms[phase];
+    }
+
+    /**
+     * @return The number of frames that came later than one and a half frame budgets
+     */
+    public long getMissedFrames() {
+        return missedFrames;
+    }
+
+    /**
+     * @return The number of frames
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return The average time between two frames in nanoseconds, 0 if there were no frames
+     */
+    public long getAverageFrameTime() {
+        long frames = this.frames;
+        return frames > 0 ? framesTime / frames : 0;
+    }
+
+    /**
+     * @return The longest time between two frames in nanoseconds
+     */
+    public long getWorstFrameTime() {
+        return worstFrame;
+    }
+
+    /**
+     * Forgets everything measured so far.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+        missedFrames = 0;
+        frames = 0;
+        framesTime = 0;
+        worstFrame = 0;
+        isFrameResetRequested = true;
+    }
+}
@@ -0,0 +1,1067 @@
+/*
+ * GameWorld
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The GameWorld is a Class that holds the whole game state and logic.<br>
+ * It has no Android dependencies, so the game can be stepped on a plain JVM
+ * (e.g. for profiling and benchmarking). Drawing is left to the views.<br><br>
+ *
+ * Sprites are given to the world as ARGB pixel arrays, which are turned into collision masks
+ * once, so that collisions are checked against the visible pixels. If the pixels of a sprite
+ * are not set then the sprite is considered fully opaque.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class GameWorld {
+
+    /* Directions definition*/
+    public static final int DOWN = 0;
+    public static final int LEFT = 1;
+    public static final int RIGHT = 2;
+
+    /* Wall sides definition*/
+    public static final int WALL_LEFT = 0;
+    public static final int WALL_RIGHT = 1;
+
+    /* The speeds of the difficulty profile are tuned for this number of ticks per second*/
+    private static final int SPEEDS_TICK_RATE = FixedTimestep.DEFAULT_TICK_RATE;
+
+    /* After how much walls you need a moving one?
+    * for example if this is set to 1 then all walls will be moving,
+    * if it is set to 2 then half the walls will be moving.
+    * It's taken from the difficulty profile, and changes with the score*/
+    private int MOVING_HOLES_TIME;
+
+    /* Each wall thickness*/
+    private int THICKNESS;
+
+    /* The distance between walls and can be calculated as follows:
+     * ((distance - (size of hole)) / hero speed ) * walls speed + max(THICKNESS, hero height)
+     * distance here is the width of the screen.
+     * This calculation ensures that the hero is capable of passing the wall.
+     * The speeds change with the score, so the distance of new walls does too
+     */
+    private int WALLS_MARGIN;
+
+    /*
+     * This is the maximum Height that the hero is allowed to get down (i.e. the hero y coordinate)
+     * For now it's (screen height)/4
+     */
+    private int MAX_HEIGHT;
+
+    /* Width for now is the hole size divided by 3.5*/
+    private int WIDTH;
+    private int HEIGHT;
+
+    private int unitsToMove;                /*in pixels*/
+    private int wallsUnitsToMove;           /*in pixels*/
+    private int holesUnitsToMove;           /*in pixels*/
+
+    /* How hard the game is at every score, see DifficultyProfile*/
+    private final DifficultyProfile profile;
+
+    /* The values of the profile for every score up to its last row, in pixels per tick at the
+     * tick rate of the world. The difficulty at a score is then a lookup, at any score
+     */
+    private final int[] heroUnits;
+    private final int[] wallsUnits;
+    private final int[] holesUnits;
+    private final int[] movingHolesTimes;
+    private final int[] wallsMargins;
+
+    private long numberOfGeneratedWalls;
+
+    private final int width;                /* Screen width*/
+    private final int height;               /* Screen height*/
+    private final float density;            /* Screen density, used to convert dp to pixels*/
+    private final int tickRate;             /* Simulation ticks per second*/
+
+    /*
+     * Some actions must be executed outside of the world (i.e. playing sounds)
+     * and this Listener allows this
+     */
+    private GameWorldCallBack mListener;
+
+    /*
+     * isWallPassed will be true if we successfully passed a wall, else
+     * it will be false indicating that the hero hit the wall
+     */
+    private boolean isWallPassed = true;
+
+    /*
+     * This flag indicates whether we lost the game or not.
+     * Although we can use isWallPassed to do this, adding this flag
+     * make the logic mor clear
+     */
+    private volatile boolean isLost;
+
+    /*
+     * The direction in which the hero is going.
+     * It can be either left, right or down.
+     * It's only changed by the thread that runs the ticks (see InputQueue), so it isn't volatile
+     */
+    private int direction;
+
+    /* Where we store all the walls.
+     * Adding a limit for the number of walls currently visible on the screen
+     * makes it possible to keep them in a ring of preallocated slots
+     * (i.e. when a wall reaches the top, it's no longer needed) and its slot is reused
+     * by a new wall
+     */
+    private Walls walls;
+
+    /* Generates the walls, it's seeded on every restart so that a game can be replayed from its seed*/
+    private final XorShiftRandom random = new XorShiftRandom(0);
+
+    /* Limit for the number of walls allowed on the screen.
+     * The calculation for this goes as follows:
+     *      Height/WALLS_MARGIN
+     */
+    private int numberOfWalls;
+
+    /* The slot of the top wall that the hero will either pass or hit*/
+    private int topWallIndex;
+
+    /* Which way is the hero currently looking?
+     * The answer can be either left, right, or down.
+     * We can use the direction variable for this, but this adds little clarity.
+     */
+    private int heroFaceDirection;
+
+    /* Hero collision masks, one for each direction*/
+    private final CollisionMask[] heroMasks = new CollisionMask[3];
+
+    /* Wall collision masks, one for each side*/
+    private final CollisionMask[] wallMasks = new CollisionMask[2];
+
+    private int x;                          /* Hero x coordinate*/
+    private int y;                          /* Hero y coordinate*/
+    private int holeSize;                   /* Hole size*/
+    private volatile int score = 0;         /* current score*/
+
+    /* Hero x coordinate before the last tick, used for interpolation*/
+    private int previousX;
+
+    /* The number of pixels that the walls moved in the last tick, used for interpolation*/
+    private int lastWallsMove;
+
+    /* The number of ticks run since the game was restarted*/
+    private int ticks;
+
+    /* Records the game so that it can be replayed, may be null*/
+    private InputRecorder recorder;
+
+    /* The masks and the difficulty profile as they're recorded, built when first needed*/
+    private byte[] setup;
+
+    /* Measures the collision check, disabled unless the views share their stats*/
+    private FrameStats stats = new FrameStats();
+
+    /**
+     * Constructs a new game world with the default difficulty profile.
+     *
+     * @param width    Screen width in pixels
+     * @param height   Screen height in pixels
+     * @param density  Screen density (i.e. pixels per dp)
+     * @param tickRate Simulation ticks per second, speeds are scaled so that the game
+     *                 runs at the same pace regardless of the tick rate
+     */
+    public GameWorld(int width, int height, float density, int tickRate) {
+        this(width, height, density, tickRate, DifficultyProfile.DEFAULT);
+    }
+
+    /**
+     * Constructs a new game world.
+     *
+     * @param width    Screen width in pixels
+     * @param height   Screen height in pixels
+     * @param density  Screen density (i.e. pixels per dp)
+     * @param tickRate Simulation ticks per second, speeds are scaled so that the game
+     *                 runs at the same pace regardless of the tick rate
+     * @param profile  How hard the game is at every score
+     */
+    public GameWorld(int width, int height, float density, int tickRate, DifficultyProfile profile) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid screen size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.density = density;
+        this.tickRate = tickRate;
+        this.profile = profile;
+
+        THICKNESS = height / 25;
+        HEIGHT = (int) (THICKNESS * 1.5);
+        holeSize = width / profile.getColumns();
+        WIDTH = (int) (holeSize / 3.5);
+        MAX_HEIGHT = height / 4;
+
+        /* The amount of pixels that the hero and the each wall moves at every score.
+         * When the game thread asks the game to update itself then walls and the hero will move
+         * by these amounts
+         */
+        int scores = profile.getLastScore() + 1;
+        heroUnits = new int[scores];
+        wallsUnits = new int[scores];
+        holesUnits = new int[scores];
+        movingHolesTimes = new int[scores];
+        wallsMargins = new int[scores];
+        int minWallsMargin = Integer.MAX_VALUE;
+        for (int score = 0; score < scores; score++) {
+            heroUnits[score] = convertSpeedToPixel(profile.getHeroSpeed(score));
+            wallsUnits[score] = convertSpeedToPixel(profile.getWallsSpeed(score));
+            holesUnits[score] = convertSpeedToPixel(profile.getHolesSpeed(score));
+            movingHolesTimes[score] = profile.getMovingHolesTime(score);
+            wallsMargins[score] = ((width - (holeSize)) / heroUnits[score]) * wallsUnits[score]
+                    + Math.max(THICKNESS, HEIGHT);
+            minWallsMargin = Math.min(minWallsMargin, wallsMargins[score]);
+        }
+
+        /* The ring must hold the walls of the closest spacing*/
+        numberOfWalls = height / minWallsMargin;
+        numberOfWalls += 2;
+
+        /* Until the real sprites are set every sprite is fully opaque*/
+        heroMasks[DOWN] = heroMasks[LEFT] = heroMasks[RIGHT] = CollisionMask.opaque(WIDTH, HEIGHT);
+        wallMasks[WALL_LEFT] = wallMasks[WALL_RIGHT] = CollisionMask.opaque(width, THICKNESS);
+
+        /* There are no walls so far*/
+        walls = new Walls(numberOfWalls, width - holeSize, random);
+        restart();
+    }
+
+    /**
+     * Sets the listener.
+     *
+     * @param callBack A class that implements GameWorldCallBack interface
+     */
+    public void setCallBack(GameWorldCallBack callBack) {
+        mListener = callBack;
+    }
+
+    /**
+     * Sets the recorder. Every game is recorded from its restart, or from now
+     * if the current game hasn't run any tick yet.
+     *
+     * @param recorder The recorder, or null to stop recording
+     */
+    public void setRecorder(InputRecorder recorder) {
+        this.recorder = recorder;
+        startRecording();
+    }
+
+    /**
+     * Starts recording the current game if it hasn't run any tick yet.
+     */
+    private void startRecording() {
+        if (recorder != null && ticks == 0) {
+            recorder.start(random.getSeed(), width, height, density, tickRate, getSetup());
+        }
+    }
+
+    /**
+     * Returns what the game plays with besides the screen, i.e. the collision masks and the
+     * difficulty profile, as it's written in a recorded game.
+     *
+     * @return The setup, it must not be changed
+     */
+    byte[] getSetup() {
+        if (setup == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            try {
+                profile.write(out);
+                for (CollisionMask mask : heroMasks) {
+                    mask.write(out);
+                }
+                for (CollisionMask mask : wallMasks) {
+                    mask.write(out);
+                }
+                out.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            setup = bytes.toByteArray();
+        }
+        return setup;
+    }
+
+    /**
+     * The masks were changed, a game that hasn't started yet is recorded with the new ones.
+     */
+    private void onMasksChanged() {
+        setup = null;
+        startRecording();
+    }
+
+    /**
+     * Sets the stats that the collision check is measured in.
+     *
+     * @param stats The frame stats
+     */
+    public void setFrameStats(FrameStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Sets the pixels of a hero sprite.
+     *
+     * @param direction The direction that the sprite is looking at
+     * @param pixels    ARGB pixels, row by row, of size {@link #getHeroWidth()} x {@link #getHeroHeight()}
+     */
+    public void setHeroPixels(int direction, int[] pixels) {
+        heroMasks[direction] = CollisionMask.fromPixels(pixels, WIDTH, HEIGHT);
+        onMasksChanged();
+    }
+
+    /**
+     * Sets the pixels of a wall sprite.
+     *
+     * @param side   {@link #WALL_LEFT} or {@link #WALL_RIGHT}
+     * @param pixels ARGB pixels, row by row, of size {@link #getWidth()} x {@link #getWallThickness()}
+     */
+    public void setWallPixels(int side, int[] pixels) {
+        wallMasks[side] = CollisionMask.fromPixels(pixels, width, THICKNESS);
+        onMasksChanged();
+    }
+
+    /**
+     * Sets the mask of a hero sprite, masks never change so they can be shared between worlds.
+     *
+     * @param direction The direction that the sprite is looking at
+     * @param mask      A mask of size {@link #getHeroWidth()} x {@link #getHeroHeight()}
+     */
+    public void setHeroMask(int direction, CollisionMask mask) {
+        checkMaskSize(mask, WIDTH, HEIGHT);
+        heroMasks[direction] = mask;
+        onMasksChanged();
+    }
+
+    /**
+     * @param direction The direction that the sprite is looking at
+     * @return The mask of the hero sprite
+     */
+    public CollisionMask getHeroMask(int direction) {
+        return heroMasks[direction];
+    }
+
+    /**
+     * Sets the mask of a wall sprite, masks never change so they can be shared between worlds.
+     *
+     * @param side {@link #WALL_LEFT} or {@link #WALL_RIGHT}
+     * @param mask A mask of size {@link #getWidth()} x {@link #getWallThickness()}
+     */
+    public void setWallMask(int side, CollisionMask mask) {
+        checkMaskSize(mask, width, THICKNESS);
+        wallMasks[side] = mask;
+        onMasksChanged();
+    }
+
+    /**
+     * @param side {@link #WALL_LEFT} or {@link #WALL_RIGHT}
+     * @return The mask of the wall sprite
+     */
+    public CollisionMask getWallMask(int side) {
+        return wallMasks[side];
+    }
+
+    /**
+     * Makes sure that a mask has the size of the sprite that it's set for.
+     *
+     * @param mask   The mask
+     * @param width  Sprite width
+     * @param height Sprite height
+     */
+    private static void checkMaskSize(CollisionMask mask, int width, int height) {
+        if (mask.getWidth() != width || mask.getHeight() != height) {
+            throw new IllegalArgumentException("Expected a " + width + "x" + height + " mask, got "
+                    + mask.getWidth() + "x" + mask.getHeight());
+        }
+    }
+
+    /**
+     * Returns the current state of the game.
+     *
+     * @return true if the game is finished, false otherwise
+     */
+    public boolean isLost() {
+        return isLost;
+    }
+
+    /**
+     * Sets the direction that the hero is going to.<br>
+     * This must be called from the thread that runs the ticks, other threads should pass
+     * the change through an {@link InputQueue}.
+     *
+     * @param direction Hero direction
+     */
+    public void setDirection(int direction) {
+        this.direction = direction;
+        if (direction == LEFT) {
+            heroFaceDirection = LEFT;
+        } else if (direction == RIGHT) {
+            heroFaceDirection = RIGHT;
+        } else if (direction == DOWN) {
+            heroFaceDirection = DOWN;
+        }
+    }
+
+    /**
+     * @return Current score
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return Screen width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return Screen height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Hero sprite width
+     */
+    public int getHeroWidth() {
+        return WIDTH;
+    }
+
+    /**
+     * @return Hero sprite height
+     */
+    public int getHeroHeight() {
+        return HEIGHT;
+    }
+
+    /**
+     * @return Wall sprite thickness
+     */
+    public int getWallThickness() {
+        return THICKNESS;
+    }
+
+    /**
+     * @return Hole size
+     */
+    public int getHoleSize() {
+        return holeSize;
+    }
+
+    /**
+     * @return Hero x coordinate
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return Hero y coordinate
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return Hero x coordinate before the last tick
+     */
+    public int getPreviousX() {
+        return previousX;
+    }
+
+    /**
+     * @return The number of pixels that the walls moved in the last tick
+     */
+    public int getLastWallsMove() {
+        return lastWallsMove;
+    }
+
+    /**
+     * @return The number of pixels that the hero moves sideways each tick, at the current score
+     */
+    public int getHeroSpeed() {
+        return unitsToMove;
+    }
+
+    /**
+     * @return The number of pixels that the walls move up each tick, at the current score
+     */
+    public int getWallsSpeed() {
+        return wallsUnitsToMove;
+    }
+
+    /**
+     * @return The number of pixels that a moving hole moves each tick, at the current score
+     */
+    public int getHolesSpeed() {
+        return holesUnitsToMove;
+    }
+
+    /**
+     * @return The direction that the hero is looking at
+     */
+    public int getHeroFaceDirection() {
+        return heroFaceDirection;
+    }
+
+    /**
+     * @return The number of ticks run since the game was restarted
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return Simulation ticks per second
+     */
+    public int getTickRate() {
+        return tickRate;
+    }
+
+    /**
+     * @return The number of walls generated in the current game
+     */
+    public long getGeneratedWalls() {
+        return numberOfGeneratedWalls;
+    }
+
+    /**
+     * @return The seed of the current game
+     */
+    public long getSeed() {
+        return random.getSeed();
+    }
+
+    /**
+     * @return How hard the game is at every score
+     */
+    public DifficultyProfile getDifficultyProfile() {
+        return profile;
+    }
+
+    /**
+     * @return The walls on the screen
+     */
+    public Walls getWalls() {
+        return walls;
+    }
+
+    /**
+     * Places the hero somewhere on the screen without simulating anything.<br>
+     * This is used by the benchmarks to set up collisions.
+     *
+     * @param x             Hero x coordinate
+     * @param y             Hero y coordinate
+     * @param faceDirection The direction that the hero is looking at
+     */
+    void placeHero(int x, int y, int faceDirection) {
+        this.x = x;
+        this.y = y;
+        previousX = x;
+        heroFaceDirection = faceDirection;
+    }
+
+    /**
+     * @return The slot of the top wall that the hero will either pass or hit, or -1 if there is none
+     */
+    public int getTopWallSlot() {
+        return walls.contains(topWallIndex) ? topWallIndex : -1;
+    }
+
+    /**
+     * Runs one simulation tick: moves everything and checks for collisions.
+     */
+    public void tick() {
+        if (isLost) {
+            return;
+        }
+        if (recorder != null) {
+            recorder.record(ticks, direction);
+        }
+        ticks++;
+        previousX = x;
+        lastWallsMove = wallsUnitsToMove;
+        updatePosition();
+
+        /*check if the hero crossed the top wall during this tick*/
+        int topWallY = walls.getYCoordinate(topWallIndex);
+        if (isWallPassed &&
+                ((topWallY < y + HEIGHT) && topWallY + lastWallsMove + THICKNESS > y)) {
+            /*at this stage the hero is colliding with the top wall*/
+            long start = stats.start();
+            int previousHoleX = walls.getPreviousHoleXCoordinate(topWallIndex);
+            int moveX = (x - previousX) - (walls.getHoleCoordinate(topWallIndex) - previousHoleX);
+            int steps = Math.max(1, Math.max(Math.abs(moveX), lastWallsMove));
+            int impact = getImpactStep(topWallY, previousHoleX, moveX, steps);
+            stats.stop(FrameStats.COLLISION, start);
+            if (impact > 0) {
+                isLost = true;
+                isWallPassed = false;
+
+                /* We have lost. Hero must touch the top wall*/
+                undoUpdatePosition(moveX, impact - 1, steps);
+                fixHeroPosition(previousHoleX, topWallY);
+                previousX = x;
+
+                if (recorder != null) {
+                    recorder.finish(ticks, score);
+                }
+                if (mListener != null) {
+                    mListener.onWallHit();
+                }
+                return;
+            }
+        }
+
+        if (topWallY + THICKNESS < y) {
+            /*Wall is passed*/
+            if (isWallPassed) {
+                score++;
+
+                /* The game gets harder with the score*/
+                setDifficulty(score);
+
+                if (mListener != null) {
+                    mListener.onScore(score);
+                }
+            }
+            isWallPassed = true;
+            topWallIndex = (topWallIndex + 1) % numberOfWalls;
+        }
+    }
+
+    /**
+     * Checks if the wall hits a visible pixel in the hero bitmap.
+     *
+     * @param wallY Top wall y coordinate
+     * @param holeX Hole top left x coordinate
+     * @return true if the hero hit the wall, false otherwise
+     */
+    boolean isWallHit(int wallY, int holeX) {
+        return isWallHit(x, wallY, holeX);
+    }
+
+    /**
+     * Checks if the wall hits a visible pixel in the hero bitmap, with the hero at some x coordinate.
+     *
+     * @param heroX Hero x coordinate
+     * @param wallY Top wall y coordinate
+     * @param holeX Hole top left x coordinate
+     * @return true if the hero hit the wall, false otherwise
+     */
+    private boolean isWallHit(int heroX, int wallY, int holeX) {
+
+        /* We haven't reached the wall yet, or we have passed it*/
+        if (y + HEIGHT < wallY || wallY + THICKNESS <= y)
+            return false;
+
+        if (holeX < heroX && (heroX + WIDTH) < holeX + holeSize)
+            return false;
+
+        /* Get the correct masks to check against*/
+        CollisionMask heroMask = heroMasks[heroFaceDirection];
+        CollisionMask leftMask = wallMasks[WALL_LEFT];
+        CollisionMask rightMask = wallMasks[WALL_RIGHT];
+
+        /* The left wall bitmap ends where the hole starts, and the right one starts where it ends*/
+        int leftWallX = holeX - width;
+        int rightWallX = holeX + holeSize;
+
+        /* The hero columns that can touch a wall: a hero pixel can only be on the left wall up to
+         * its last visible column, and on the right wall from its first visible column.
+         */
+        int leftLimit = leftMask.getLast() < 0 ? -1 : leftWallX + leftMask.getLast() - heroX;
+        int rightLimit = rightMask.getFirst() < 0 ? WIDTH : rightWallX + rightMask.getFirst() - heroX;
+
+        /* We should check every horizontal pixel for a collision but
+         * from what y position in the bitmap should we start the check?
+         * For now since the height of the hero is bigger than the thickness then there are two possible states
+         * for the bitmap y location relative to the hole.
+         * 1- Hero's top pixels above the wall
+         * 2- Hero's top pixels are passing the wall.
+         * 3- Currently there is no option for when the hero is contained entirely within the hole.
+         * (i.e. The thickness of the walls is larger than the hero)
+         * However The following code should handle even that case.
+         * Only the rows of the hero that are over the wall are checked.
+         */
+        int start = HEIGHT - ((y + HEIGHT) - wallY);
+        int wallI = 0;
+        if (wallY < y) {
+            wallI = y - wallY;
+            start = 0;
+        }
+
+        /* Every row over the wall is checked, the hero moves sideways so rows that were clear
+         * in the last tick may not be clear now.
+         * The pixels of a row are only compared with a wall when the visible part of the row
+         * reaches it, near the edges of the hole that's only true for a few rows.
+         */
+        for (int i = start; i < HEIGHT && wallI < THICKNESS; i++, wallI++) {
+            int heroFirst = heroMask.getRowFirst(i);
+            if (heroFirst < 0) {
+                continue;
+            }
+
+            /*we will hit a wall when a visible pixel of the row is on a visible wall pixel*/
+            if ((heroFirst <= leftLimit && heroMask.overlapsRow(i, heroX, leftMask, wallI, leftWallX))
+                    || (heroMask.getRowLast(i) >= rightLimit
+                    && heroMask.overlapsRow(i, heroX, rightMask, wallI, rightWallX))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sweeps the hero against the top wall along the last tick and finds when it first touches it.<br>
+     * The hero and the hole move in straight lines during a tick, and only the position of the hero
+     * relative to the hole matters, so the hole is kept where it was and the hero moves by the
+     * difference. The tick is split into sub-steps that move at most one pixel along each axis,
+     * so the wall can't be skipped however far things move in one tick (e.g. at low tick rates).
+     *
+     * @param wallY         Top wall y coordinate
+     * @param previousHoleX Hole top left x coordinate before the last tick
+     * @param moveX         How far the hero moved relative to the hole in the last tick
+     * @param steps         The number of sub-steps
+     * @return The first sub-step (from 1 to steps) where the hero hits the wall, or -1 if it doesn't
+     */
+    private int getImpactStep(int wallY, int previousHoleX, int moveX, int steps) {
+
+        /* The hero is inside the hole at the start and at the end of the tick, so it was inside
+         * the hole all along
+         */
+        int endX = previousX + moveX;
+        if (previousHoleX < Math.min(previousX, endX)
+                && Math.max(previousX, endX) + WIDTH < previousHoleX + holeSize) {
+            return -1;
+        }
+
+        for (int step = 1; step <= steps; step++) {
+            int heroX = previousX + moveX * step / steps;
+            int stepWallY = wallY + lastWallsMove - lastWallsMove * step / steps;
+            if (isWallHit(heroX, stepWallY, previousHoleX)) {
+                return step;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the hero according to its direction.
+     */
+    private void updatePosition() {
+
+        /* Decrement x coordinate to move to left*/
+        if (direction == LEFT) {
+            x -= unitsToMove;
+
+            /* Handle left screen edge hit*/
+            if (x < 0) {
+                x = 0;
+            }
+
+            /* Increment x coordinate to move to right*/
+        } else if (direction == RIGHT) {
+            x += unitsToMove;
+
+            /* Handle left screen edge hit*/
+            if (x > width - WIDTH) {
+                x = width - WIDTH;
+            }
+        }
+
+        /* Get the bottom wall, if this wall passed the WALLS_MARGIN then we should generate a new wall*/
+        if (walls.size() == 0
+                || walls.getYCoordinate(walls.getSlot(walls.size() - 1)) <= height - WALLS_MARGIN) {
+            numberOfGeneratedWalls++;
+            walls.add(height, numberOfGeneratedWalls % MOVING_HOLES_TIME == 0 ? holesUnitsToMove : 0);
+        }
+
+        /* Decrement every wall y coordinate to move it upside*/
+        walls.move(wallsUnitsToMove);
+
+        /* If a wall reaches the top we should remove it*/
+        while (walls.size() > 0 && walls.getYCoordinate(walls.getSlot(0)) + THICKNESS <= 0) {
+            walls.removeFirst();
+        }
+    }
+
+    /**
+     * Undo changes from last step, up to the last sub-step before the hero hit the wall.<br>
+     * The holes are put back where they were and the hero is moved relative to them,
+     * see {@link #getImpactStep(int, int, int, int)}.
+     *
+     * @param moveX How far the hero moved relative to the hole in the last step
+     * @param step  The last sub-step before the impact, 0 is the start of the step
+     * @param steps The number of sub-steps
+     */
+    private void undoUpdatePosition(int moveX, int step, int steps) {
+        walls.fixHoleCoordinates();
+        x = previousX + moveX * step / steps;
+        y -= lastWallsMove - lastWallsMove * step / steps;
+
+        /* Handle the screen edges*/
+        if (x < 0) {
+            x = 0;
+        } else if (x > width - WIDTH) {
+            x = width - WIDTH;
+        }
+    }
+
+    /**
+     * Fix the hero bitmap so that it doesn't overlap with the wall.<br>
+     * The bitmap should only hit the wall.<br>
+     * The touching position is computed directly from the first and last visible pixels of the
+     * masks, so it costs one pass over the hero columns or rows instead of moving the hero one
+     * pixel at a time and checking for a collision after every step.
+     *
+     * @param topWallHoleXCoordinate Top wall hole x coordinate
+     * @param topWallYCoordinate     Top wall y coordinate
+     */
+    private void fixHeroPosition(int topWallHoleXCoordinate, int topWallYCoordinate) {
+
+        /*hero is not in the hole*/
+        if (x > (topWallHoleXCoordinate + holeSize) || x + WIDTH < topWallHoleXCoordinate
+                || x + unitsToMove > (topWallHoleXCoordinate + holeSize) ||
+                x + WIDTH - unitsToMove < topWallHoleXCoordinate) {
+            /*make hero touch wall*/
+            if (topWallYCoordinate > y) {
+                moveDownToContact(topWallYCoordinate, topWallHoleXCoordinate);
+            }
+            return;
+        }
+
+        /*hero is partially or fully in the hole, move the hero until it hits*/
+        int right = getRightContact(topWallYCoordinate, topWallHoleXCoordinate);
+        int left = getLeftContact(topWallYCoordinate, topWallHoleXCoordinate);
+        if (direction == RIGHT && right >= 0) {
+            x += right;
+        } else if (direction == LEFT && left >= 0) {
+            x -= left;
+        } else if (direction == DOWN && right >= 0 && (left < 0 || right <= left)) {
+            x += right;
+        } else if (direction == DOWN && left >= 0) {
+            x -= left;
+        } else {
+            moveDownToContact(topWallYCoordinate, topWallHoleXCoordinate);
+        }
+
+        /* Handle the screen edges*/
+        if (x < 0) {
+            x = 0;
+        } else if (x > width - WIDTH) {
+            x = width - WIDTH;
+        }
+    }
+
+    /**
+     * Moves the hero down until its lowest visible pixels touch the top of the wall.
+     * The hero is left where it is if it can pass the wall moving down.
+     *
+     * @param wallY Top wall y coordinate
+     * @param holeX Hole top left x coordinate
+     */
+    private void moveDownToContact(int wallY, int holeX) {
+        CollisionMask heroMask = heroMasks[heroFaceDirection];
+        int leftWallX = holeX - width;
+        int rightWallX = holeX + holeSize;
+        int contact = -1;
+        for (int i = 0; i < WIDTH; i++) {
+            int heroBottom = heroMask.getColumnBottom(i);
+            if (heroBottom < 0) {
+                continue;
+            }
+
+            /* Which wall is under this column?*/
+            int column = x + i;
+            CollisionMask wallMask = wallMasks[column < holeX ? WALL_LEFT : WALL_RIGHT];
+            int wallColumn = column - (column < holeX ? leftWallX : rightWallX);
+            int wallTop = wallMask.getColumnTop(wallColumn);
+            if (wallTop < 0) {
+                continue;
+            }
+            int distance = (wallY + wallTop) - (y + heroBottom);
+
+            /* The column is already inside the wall, or it has passed it*/
+            if (distance < 0) {
+                if (y + heroBottom > wallY + wallMask.getColumnBottom(wallColumn)) {
+                    continue;
+                }
+                distance = 0;
+            }
+            if (contact < 0 || distance < contact) {
+                contact = distance;
+            }
+        }
+        if (contact > 0) {
+            y += contact;
+        }
+    }
+
+    /**
+     * Finds how far the hero can move right before touching the right wall.
+     *
+     * @param wallY Top wall y coordinate
+     * @param holeX Hole top left x coordinate
+     * @return The distance in pixels, or -1 if no hero row is beside the right wall
+     */
+    private int getRightContact(int wallY, int holeX) {
+        CollisionMask heroMask = heroMasks[heroFaceDirection];
+        CollisionMask wallMask = wallMasks[WALL_RIGHT];
+        int rightWallX = holeX + holeSize;
+        int contact = -1;
+        for (int i = Math.max(0, wallY - y); i < HEIGHT && y + i - wallY < THICKNESS; i++) {
+            int heroLast = heroMask.getRowLast(i);
+            int wallFirst = wallMask.getRowFirst(y + i - wallY);
+            if (heroLast < 0 || wallFirst < 0) {
+                continue;
+            }
+            int distance = (rightWallX + wallFirst) - (x + heroLast);
+            if (distance >= 0 && (contact < 0 || distance < contact)) {
+                contact = distance;
+            }
+        }
+        return contact;
+    }
+
+    /**
+     * Finds how far the hero can move left before touching the left wall.
+     *
+     * @param wallY Top wall y coordinate
+     * @param holeX Hole top left x coordinate
+     * @return The distance in pixels, or -1 if no hero row is beside the left wall
+     */
+    private int getLeftContact(int wallY, int holeX) {
+        CollisionMask heroMask = heroMasks[heroFaceDirection];
+        CollisionMask wallMask = wallMasks[WALL_LEFT];
+        int leftWallX = holeX - width;
+        int contact = -1;
+        for (int i = Math.max(0, wallY - y); i < HEIGHT && y + i - wallY < THICKNESS; i++) {
+            int heroFirst = heroMask.getRowFirst(i);
+            int wallLast = wallMask.getRowLast(y + i - wallY);
+            if (heroFirst < 0 || wallLast < 0) {
+                continue;
+            }
+            int distance = (x + heroFirst) - (leftWallX + wallLast);
+            if (distance >= 0 && (contact < 0 || distance < contact)) {
+                contact = distance;
+            }
+        }
+        return contact;
+    }
+
+    /**
+     * Sets the speeds and the walls spacing for a score, from the values of the profile.<br>
+     * Scores after the last row of the profile use its values.
+     *
+     * @param score The score
+     */
+    private void setDifficulty(int score) {
+        int level = Math.min(score, heroUnits.length - 1);
+        unitsToMove = heroUnits[level];
+        wallsUnitsToMove = wallsUnits[level];
+        holesUnitsToMove = holesUnits[level];
+        MOVING_HOLES_TIME = movingHolesTimes[level];
+        WALLS_MARGIN = wallsMargins[level];
+    }
+
+    /**
+     * Converts from dp to pixels.<br>
+     * Code borrowed from: <br>
+     * http://stackoverflow.com/a/9563438<br>
+     * Many thanks to both Muhammad Nabeel Arif and Steven Byle
+     *
+     * @param dp Units in dp
+     * @return Units in pixels
+     */
+    private int convertDpToPixel(float dp) {
+        return (int) ((dp * density) + 0.5);
+    }
+
+    /**
+     * Converts a speed from dp per frame, as tuned for {@link #SPEEDS_TICK_RATE} frames
+     * per second, into pixels per tick at the current tick rate.
+     *
+     * @param dp Speed in dp per frame
+     * @return Speed in pixels per tick, at least one pixel
+     */
+    private int convertSpeedToPixel(float dp) {
+        return Math.max(1, convertDpToPixel(dp * SPEEDS_TICK_RATE / tickRate));
+    }
+
+    /**
+     * Restarts the game with a new seed.
+     */
+    public void restart() {
+        restart(System.nanoTime());
+    }
+
+    /**
+     * Restarts the game. The same seed always generates the same walls.
+     *
+     * @param seed The seed of the walls generator
+     */
+    public void restart(long seed) {
+        random.setSeed(seed);
+        ticks = 0;
+        isLost = false;
+        score = 0;
+        setDifficulty(0);
+        walls.clear();
+        numberOfGeneratedWalls = 1;
+        topWallIndex = walls.add(height, numberOfGeneratedWalls % MOVING_HOLES_TIME == 0 ? holesUnitsToMove : 0);
+        isWallPassed = true;
+        x = width / 2 - WIDTH / 2;
+        previousX = x;
+        y = MAX_HEIGHT / 2;
+        lastWallsMove = 0;
+        direction = DOWN;
+        heroFaceDirection = DOWN;
+        startRecording();
+    }
+
+    /**
+     * The GameWorldCallBack is an Interface that gets notified of the game events.<br>
+     * The callbacks are called from the thread that runs {@link #tick()}.
+     *
+     * @author Ala' Hashesh
+     * @version 1.0
+     * @since 2015-08-30
+     */
+    public interface GameWorldCallBack {
+
+        /**
+         * Called when a wall is passed.
+         *
+         * @param score The new score
+         */
+        void onScore(int score);
+
+        /**
+         * Called when the hero hits a wall and the game is lost.
+         */
+        void onWallHit();
+    }
+}
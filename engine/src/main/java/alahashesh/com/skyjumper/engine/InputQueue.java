@@ -0,0 +1,125 @@
+/*
+ * InputQueue
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The InputQueue is a Class that passes the direction changes from the UI thread (which gets
+ * the touch events) to the game thread (which runs the ticks) without locks.<br>
+ * Every change has the time it happened at, so that the game thread can apply it
+ * on the tick that it belongs to rather than on the next frame.<br><br>
+ *
+ * The queue is a ring buffer with a single producer and a single consumer: only one thread
+ * may call {@link #offer(long, int)} and only one thread may call {@link #poll(long)}.
+ * Each side owns one counter and publishes it with lazySet (a store that isn't reordered with
+ * the writes before it), which is enough for the other side to see the event it counts.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class InputQueue {
+
+    /* Returned by poll when no event is due*/
+    public static final int NONE = -1;
+
+    /* The default number of events that can wait in the queue*/
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final long[] times;         /* When each event happened, System.nanoTime() based*/
+    private final int[] directions;     /* The direction of each event*/
+    private final int mask;             /* capacity - 1, the capacity is a power of two*/
+
+    private final AtomicLong head = new AtomicLong();   /* The next event to read, written by the consumer*/
+    private final AtomicLong tail = new AtomicLong();   /* The next event to write, written by the producer*/
+
+    private long cachedHead;            /* The last head seen by the producer*/
+    private long polledTime;            /* The time of the last polled event*/
+
+    /**
+     * Constructs a queue with the default capacity.
+     */
+    public InputQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a queue.
+     *
+     * @param capacity The number of events that can wait in the queue, rounded up to a power of two
+     */
+    public InputQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        times = new long[size];
+        directions = new int[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an event, called from the producer thread only.
+     *
+     * @param time      When the event happened, System.nanoTime() based
+     * @param direction The new direction of the hero
+     * @return true if the event was added, false if the queue is full (i.e. the game thread
+     * isn't reading it)
+     */
+    public boolean offer(long time, int direction) {
+        long tail = this.tail.get();
+        if (tail - cachedHead > mask) {
+            cachedHead = head.get();
+            if (tail - cachedHead > mask) {
+                return false;
+            }
+        }
+        int index = (int) tail & mask;
+        times[index] = time;
+        directions[index] = direction;
+        this.tail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest event if it happened at or before the given time, called from
+     * the consumer thread only.
+     *
+     * @param until The time of the tick that is about to run, System.nanoTime() based
+     * @return The direction of the event, or NONE if the queue is empty or the oldest event is later
+     */
+    public int poll(long until) {
+        long head = this.head.get();
+        if (head == tail.get()) {
+            return NONE;
+        }
+        int index = (int) head & mask;
+        long time = times[index];
+        if (time - until > 0) {
+            return NONE;
+        }
+        int direction = directions[index];
+        polledTime = time;
+        this.head.lazySet(head + 1);
+        return direction;
+    }
+
+    /**
+     * @return The time of the last event returned by {@link #poll(long)}
+     */
+    public long getPolledTime() {
+        return polledTime;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * InputRecorder
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The InputRecorder is a Class that records a game so that it can be played again
+ * by the {@link InputReplayer}.<br>
+ * The walls only depend on the seed, so a game is fully described by its seed and the ticks
+ * at which the direction of the hero changed.<br><br>
+ *
+ * The log format is:
+ * <pre>
+ *     header: 'S' 'J' version, seed (8 bytes), width, height, density (4 bytes), tick rate,
+ *             setup length, setup (the difficulty profile and the collision masks)
+ *     events: (ticks since the last event &lt;&lt; 2 | direction), one for every direction change
+ *     end:    (ticks since the last event &lt;&lt; 2 | END), score
+ * </pre>
+ * Numbers that don't have a size are unsigned varints (7 bits per byte, lowest bits first),
+ * so a typical event takes one or two bytes. The setup keeps the masks as runs of visible
+ * pixels, so that a game recorded with the real sprites can be replayed exactly without them.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class InputRecorder {
+
+    /* Log header*/
+    static final int MAGIC_S = 'S';
+    static final int MAGIC_J = 'J';
+    static final int VERSION = 2;
+
+    /* The event code that ends the log, the directions are 0 to 2*/
+    static final int END = 3;
+
+    private byte[] buffer = new byte[256];  /* The log, grows when it's full*/
+    private int length;                     /* The number of used bytes*/
+    private int lastTick;                   /* The tick of the last event*/
+    private int lastDirection;              /* The direction after the last event*/
+    private boolean isStarted;              /* Has a game been started?*/
+    private boolean isFinished;             /* Has the game been finished?*/
+
+    /**
+     * Starts recording a new game, the previous one is discarded.
+     *
+     * @param seed     The seed of the game
+     * @param width    Screen width in pixels
+     * @param height   Screen height in pixels
+     * @param density  Screen density
+     * @param tickRate Simulation ticks per second
+     * @param setup    The masks and the difficulty profile of the world
+     */
+    void start(long seed, int width, int height, float density, int tickRate, byte[] setup) {
+        length = 0;
+        lastTick = 0;
+        lastDirection = GameWorld.DOWN;
+        isStarted = true;
+        isFinished = false;
+        writeByte(MAGIC_S);
+        writeByte(MAGIC_J);
+        writeByte(VERSION);
+        writeFixed(seed, 8);
+        writeVarLong(width);
+        writeVarLong(height);
+        writeFixed(Float.floatToIntBits(density), 4);
+        writeVarLong(tickRate);
+        writeVarLong(setup.length);
+        for (byte value : setup) {
+            writeByte(value);
+        }
+    }
+
+    /**
+     * Records the direction of the hero before a tick, only changes are written.
+     *
+     * @param tick      The number of ticks run so far
+     * @param direction The direction of the hero
+     */
+    public void record(int tick, int direction) {
+        if (!isStarted || isFinished || direction == lastDirection) {
+            return;
+        }
+        writeVarLong(((long) (tick - lastTick) << 2) | direction);
+        lastTick = tick;
+        lastDirection = direction;
+    }
+
+    /**
+     * Ends the game.
+     *
+     * @param ticks The number of ticks run in the game
+     * @param score The final score
+     */
+    public void finish(int ticks, int score) {
+        if (!isStarted || isFinished) {
+            return;
+        }
+        writeVarLong(((long) (ticks - lastTick) << 2) | END);
+        writeVarLong(score);
+        isFinished = true;
+    }
+
+    /**
+     * @return true if the recorded game has ended, only finished games can be replayed
+     */
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * @return The size of the log in bytes
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * @return A copy of the log
+     */
+    public byte[] toByteArray() {
+        byte[] log = new byte[length];
+        System.arraycopy(buffer, 0, log, 0, length);
+        return log;
+    }
+
+    /**
+     * Writes the log to a stream.
+     *
+     * @param out The stream
+     * @throws IOException If the stream fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buffer, 0, length);
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param value A non negative number
+     */
+    private void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        writeByte((int) value);
+    }
+
+    /**
+     * Writes a number using a fixed number of bytes, lowest byte first.
+     *
+     * @param value The number
+     * @param bytes The number of bytes
+     */
+    private void writeFixed(long value, int bytes) {
+        for (int i = 0; i < bytes; i++) {
+            writeByte((int) (value >>> (i << 3)));
+        }
+    }
+
+    /**
+     * Writes one byte, the buffer is doubled when it's full.
+     *
+     * @param value The byte
+     */
+    private void writeByte(int value) {
+        if (length == buffer.length) {
+            byte[] bigger = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, bigger, 0, length);
+            buffer = bigger;
+        }
+        buffer[length++] = (byte) value;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * InputReplayer
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * The InputReplayer is a Class that plays a game recorded by the {@link InputRecorder} again,
+ * as fast as possible and without drawing anything.<br>
+ * Replaying a game should reach the recorded score at the recorded tick, if it doesn't then
+ * the game logic (e.g. the collision check) behaves differently than when it was recorded.<br><br>
+ *
+ * The log keeps the collision masks and the {@link DifficultyProfile} that the game was played
+ * with, so {@link #newWorld()} builds the same world without the sprites (e.g. to replay the
+ * games saved by the app on a plain JVM). A game is only replayed on a world that has the same
+ * masks and profile, otherwise it would go off course.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class InputReplayer {
+
+    private final byte[] log;           /* The recorded log*/
+    private final long seed;            /* The seed of the game*/
+    private final int width;            /* Screen width in pixels*/
+    private final int height;           /* Screen height in pixels*/
+    private final float density;        /* Screen density*/
+    private final int tickRate;         /* Simulation ticks per second*/
+    private final byte[] setup;         /* The masks and the difficulty profile, see GameWorld.getSetup()*/
+    private final int eventsStart;      /* Where the events start in the log*/
+    private final int recordedTicks;    /* The number of ticks in the recorded game*/
+    private final int recordedScore;    /* The final score of the recorded game*/
+
+    private int position;               /* Read position in the log*/
+    private int direction;              /* The direction after the last read event*/
+    private long nextTick;              /* The tick of the next event*/
+    private int nextDirection;          /* The direction of the next event, or END*/
+
+    /**
+     * Reads a log.
+     *
+     * @param log A log written by the {@link InputRecorder}
+     * @throws IllegalArgumentException If the log is corrupt or the game wasn't finished
+     */
+    public InputReplayer(byte[] log) {
+        this.log = log;
+        if (log.length < 3 || log[0] != InputRecorder.MAGIC_S || log[1] != InputRecorder.MAGIC_J) {
+            throw new IllegalArgumentException("Not a game log");
+        }
+        if (log[2] != InputRecorder.VERSION) {
+            throw new IllegalArgumentException("Unsupported log version: " + log[2]);
+        }
+        position = 3;
+        seed = readFixed(8);
+        width = (int) readVarLong();
+        height = (int) readVarLong();
+        density = Float.intBitsToFloat((int) readFixed(4));
+        tickRate = (int) readVarLong();
+        long setupLength = readVarLong();
+        if (setupLength > log.length - position) {
+            throw new IllegalArgumentException("The log ends before the game does");
+        }
+        setup = Arrays.copyOfRange(log, position, position + (int) setupLength);
+        position += setupLength;
+        eventsStart = position;
+
+        /* Find the end of the game*/
+        long tick = 0;
+        long event;
+        do {
+            event = readVarLong();
+            tick += event >>> 2;
+        } while ((event & 3) != InputRecorder.END);
+        recordedTicks = (int) tick;
+        recordedScore = (int) readVarLong();
+    }
+
+    /**
+     * Builds a world like the one that the game was recorded on, i.e. for the same screen and
+     * tick rate, with the same collision masks and difficulty profile.
+     *
+     * @return A new world
+     * @throws IllegalArgumentException If the recorded setup is corrupt
+     */
+    public GameWorld newWorld() {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(setup));
+        try {
+            GameWorld world = new GameWorld(width, height, density, tickRate, DifficultyProfile.read(in));
+            world.setHeroMask(GameWorld.DOWN, CollisionMask.read(in));
+            world.setHeroMask(GameWorld.LEFT, CollisionMask.read(in));
+            world.setHeroMask(GameWorld.RIGHT, CollisionMask.read(in));
+            world.setWallMask(GameWorld.WALL_LEFT, CollisionMask.read(in));
+            world.setWallMask(GameWorld.WALL_RIGHT, CollisionMask.read(in));
+            return world;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Corrupt setup: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Plays the game again on a world. The world is restarted with the recorded seed.
+     *
+     * @param world A world like the recorded one, see {@link #newWorld()}
+     * @return The score reached by the replay
+     * @throws IllegalArgumentException If the world doesn't match the recorded screen, masks or profile
+     */
+    public int replay(GameWorld world) {
+        if (world.getWidth() != width || world.getHeight() != height) {
+            throw new IllegalArgumentException("The game was recorded on a " + width + "x" + height
+                    + " screen, not " + world.getWidth() + "x" + world.getHeight());
+        }
+        if (world.getTickRate() != tickRate || !Arrays.equals(world.getSetup(), setup)) {
+            throw new IllegalArgumentException("The world doesn't have the tick rate, the masks"
+                    + " or the difficulty profile that the game was recorded with");
+        }
+        world.restart(seed);
+        rewind();
+        while (world.getTicks() < recordedTicks && !world.isLost()) {
+            world.setDirection(getDirection(world.getTicks()));
+            world.tick();
+        }
+        return world.getScore();
+    }
+
+    /**
+     * Starts reading the recorded directions from the start of the game,
+     * see {@link #getDirection(int)}.
+     */
+    public void rewind() {
+        position = eventsStart;
+        direction = GameWorld.DOWN;
+        nextTick = 0;
+        readEvent();
+    }
+
+    /**
+     * Reads the recorded direction of the hero before a tick, so that a game can be played
+     * one tick at a time. The ticks must not go back, unless the replayer is rewound.
+     *
+     * @param tick The number of ticks run so far
+     * @return The direction of the hero
+     */
+    public int getDirection(int tick) {
+        while (nextDirection != InputRecorder.END && nextTick <= tick) {
+            direction = nextDirection;
+            readEvent();
+        }
+        return direction;
+    }
+
+    /**
+     * Reads the next event of the log.
+     */
+    private void readEvent() {
+        long event = readVarLong();
+        nextTick += event >>> 2;
+        nextDirection = (int) (event & 3);
+    }
+
+    /**
+     * Checks if the last replay on a world ended like the recorded game.
+     *
+     * @param world The world that replayed the game
+     * @return true if the hero was lost at the same tick with the same score
+     */
+    public boolean matches(GameWorld world) {
+        return world.isLost() && world.getTicks() == recordedTicks && world.getScore() == recordedScore;
+    }
+
+    /**
+     * @return The seed of the recorded game
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The number of ticks in the recorded game
+     */
+    public int getRecordedTicks() {
+        return recordedTicks;
+    }
+
+    /**
+     * @return The final score of the recorded game
+     */
+    public int getRecordedScore() {
+        return recordedScore;
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @return The number
+     */
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt varint at " + position);
+    }
+
+    /**
+     * Reads a number written using a fixed number of bytes, lowest byte first.
+     *
+     * @param bytes The number of bytes
+     * @return The number
+     */
+    private long readFixed(int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (long) readByte() << (i << 3);
+        }
+        return value;
+    }
+
+    /**
+     * @return The next byte of the log, between 0 and 255
+     */
+    private int readByte() {
+        if (position >= log.length) {
+            throw new IllegalArgumentException("The log ends before the game does");
+        }
+        return log[position++] & 0xFF;
+    }
+}
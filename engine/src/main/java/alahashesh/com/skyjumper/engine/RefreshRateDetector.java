@@ -0,0 +1,163 @@
+/*
+ * RefreshRateDetector
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The RefreshRateDetector is a Class that follows the display refresh rate from the times of
+ * the display frames (i.e. vsync), so that panels that change their rate while the game runs
+ * (e.g. between 60, 90 and 120 Hz) are followed.<br><br>
+ *
+ * The frame intervals only tell how often the game gets a frame, which is the refresh rate only
+ * when the game keeps up with it. So the rate starts from the rate that the display reports,
+ * and the intervals are only used to pick one of the rates that the display supports:
+ * the median of the last WINDOW intervals (a missed frame makes one interval twice as long,
+ * which doesn't move the median) must be within TOLERANCE of a supported rate. A lower rate is
+ * refused while the frames are late (i.e. end after the next vsync at the current rate),
+ * because a game that misses every other vsync looks like a panel at half the rate.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class RefreshRateDetector {
+
+    /* The number of intervals that the median is taken from*/
+    private static final int WINDOW = 31;
+
+    /* How far (as a fraction) the median rate can be from a supported rate to pick it*/
+    private static final float TOLERANCE = 0.05f;
+
+    /* A lower rate is refused if more frames of the window than this were late*/
+    private static final int MAX_LATE_FRAMES = WINDOW / 4;
+
+    /* A longer interval means that the frames were paused*/
+    private static final long MAX_INTERVAL = 100000000L;
+
+    private final float[] supportedRates;               /* The rates of the display modes*/
+    private final long[] intervals = new long[WINDOW];  /* The last intervals, a ring*/
+    private final long[] sorted = new long[WINDOW];     /* Scratch space to find the median*/
+    private final boolean[] late = new boolean[WINDOW]; /* Which of the last frames were late, a ring*/
+    private int count;                  /* The number of intervals in the ring*/
+    private int next;                   /* Where the next interval goes*/
+    private int lateFrames;             /* The number of late frames in the ring*/
+    private int nextLate;               /* Where the next late flag goes*/
+    private long lastFrameTime;         /* The time of the last frame, 0 before the first one*/
+    private float frameRate;            /* The current rate*/
+
+    /**
+     * Constructs a detector.
+     *
+     * @param displayRate    The refresh rate that the display reports, 60 is used if it's unknown
+     * @param supportedRates The refresh rates that the display supports, may be empty
+     */
+    public RefreshRateDetector(float displayRate, float[] supportedRates) {
+        frameRate = displayRate > 0 ? displayRate : 60;
+        this.supportedRates = new float[supportedRates.length + 1];
+        System.arraycopy(supportedRates, 0, this.supportedRates, 0, supportedRates.length);
+        this.supportedRates[supportedRates.length] = frameRate;
+    }
+
+    /**
+     * Forgets the last frame, call it when the frames are paused.
+     * The current rate is kept.
+     */
+    public void reset() {
+        lastFrameTime = 0;
+    }
+
+    /**
+     * Adds a display frame, call it when the frame starts.
+     *
+     * @param frameTime The time of the frame (e.g. the vsync time), System.nanoTime() based
+     * @return true if the rate changed, false otherwise
+     */
+    public boolean onFrame(long frameTime) {
+        long interval = frameTime - lastFrameTime;
+        boolean isFirst = lastFrameTime == 0;
+        lastFrameTime = frameTime;
+        if (isFirst || interval <= 0 || interval > MAX_INTERVAL) {
+            return false;
+        }
+        intervals[next] = interval;
+        next = next + 1 == WINDOW ? 0 : next + 1;
+        if (count < WINDOW) {
+            count++;
+            if (count < WINDOW) {
+                return false;
+            }
+        }
+
+        float rate = getSupportedRate(1000000000f / median());
+        if (rate == 0 || rate == frameRate || (rate < frameRate && lateFrames > MAX_LATE_FRAMES)) {
+            return false;
+        }
+        frameRate = rate;
+        return true;
+    }
+
+    /**
+     * Tells when the work of the last frame ended, so that late frames aren't taken for
+     * a lower refresh rate.
+     *
+     * @param endTime The time that the frame ended, System.nanoTime() based
+     */
+    public void onFrameEnd(long endTime) {
+        if (lastFrameTime == 0) {
+            return;
+        }
+        boolean isLate = endTime - lastFrameTime > 1000000000f / frameRate;
+        if (late[nextLate] != isLate) {
+            lateFrames += isLate ? 1 : -1;
+            late[nextLate] = isLate;
+        }
+        nextLate = nextLate + 1 == WINDOW ? 0 : nextLate + 1;
+    }
+
+    /**
+     * @return The refresh rate in frames per second
+     */
+    public float getFrameRate() {
+        return frameRate;
+    }
+
+    /**
+     * @param rate A measured rate
+     * @return The supported rate that is closest to it, 0 if none is within TOLERANCE
+     */
+    private float getSupportedRate(float rate) {
+        float closest = 0;
+        for (float supportedRate : supportedRates) {
+            if (Math.abs(rate - supportedRate) <= supportedRate * TOLERANCE
+                    && (closest == 0 || Math.abs(rate - supportedRate) < Math.abs(rate - closest))) {
+                closest = supportedRate;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @return The median of the intervals in the full ring
+     */
+    private long median() {
+
+        /* Insertion sort, the window is small and nothing is allocated*/
+        for (int i = 0; i < WINDOW; i++) {
+            long value = intervals[i];
+            int j = i - 1;
+            while (j >= 0 && sorted[j] > value) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+        return sorted[WINDOW / 2];
+    }
+}
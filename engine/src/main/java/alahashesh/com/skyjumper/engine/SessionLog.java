@@ -0,0 +1,270 @@
+/*
+ * SessionLog
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The SessionLog is a Class that keeps the {@link SessionRecord}s of the last sessions in a file,
+ * and sums them up by game version and device class so that a release that plays worse than
+ * the previous one stands out.<br><br>
+ *
+ * When the file is full it's renamed to a backup file (replacing the previous backup) and
+ * a new file is started, so the log never takes more than twice its maximum size.<br>
+ * The log is plain Java, so files pulled from devices can be read on any machine.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class SessionLog {
+
+    /* The file header*/
+    static final byte MAGIC_S = 'S';
+    static final byte MAGIC_T = 'T';
+    static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 3;
+
+    private final File file;            /* The current file*/
+    private final File backup;          /* The previous file, once the current one was full*/
+    private final int maxBytes;         /* The maximum size of each file*/
+
+    /**
+     * Constructs a log, the file is created by the first {@link #append(SessionRecord)}.
+     *
+     * @param file     The log file, the backup is kept next to it with a ".1" suffix
+     * @param maxBytes The maximum size of each file, must fit one record
+     */
+    public SessionLog(File file, int maxBytes) {
+        if (maxBytes < HEADER_SIZE + SessionRecord.SIZE) {
+            throw new IllegalArgumentException("The log can't hold a record in " + maxBytes + " bytes");
+        }
+        this.file = file;
+        this.backup = new File(file.getPath() + ".1");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Adds a record to the log, starting a new file if the current one is full.<br>
+     * A record that was cut is dropped first, so the new record starts where a whole one ends.
+     *
+     * @param record The record
+     * @throws IOException If writing fails
+     */
+    public synchronized void append(SessionRecord record) throws IOException {
+        long length = file.length();
+        if (length < HEADER_SIZE) {
+
+            /* No file, or its header was cut, start it again*/
+            length = 0;
+        } else {
+            length -= (length - HEADER_SIZE) % SessionRecord.SIZE;
+        }
+        if (length > 0 && length + SessionRecord.SIZE > maxBytes) {
+            if (backup.exists() && !backup.delete()) {
+                throw new IOException("Can't delete " + backup);
+            }
+            if (!file.renameTo(backup)) {
+                throw new IOException("Can't rename " + file);
+            }
+            length = 0;
+        }
+
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(length);
+            out.seek(length);
+            if (length == 0) {
+                out.writeByte(MAGIC_S);
+                out.writeByte(MAGIC_T);
+                out.writeByte(VERSION);
+            }
+            record.write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads all the records, from the oldest to the newest.<br>
+     * A record that was cut (e.g. the game was killed while writing it) is skipped.
+     *
+     * @return The records
+     * @throws IOException If reading fails or a file isn't a session log
+     */
+    public synchronized List<SessionRecord> readAll() throws IOException {
+        List<SessionRecord> records = new ArrayList<SessionRecord>();
+        read(backup, records);
+        read(file, records);
+        return records;
+    }
+
+    /**
+     * Reads the records of one file.
+     *
+     * @param file    The file, nothing is read if it doesn't exist
+     * @param records Where to add the records
+     * @throws IOException If reading fails or the file isn't a session log
+     */
+    private static void read(File file, List<SessionRecord> records) throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            long length = file.length();
+            if (length < HEADER_SIZE || in.readByte() != MAGIC_S || in.readByte() != MAGIC_T) {
+                throw new IOException(file + " isn't a session log");
+            }
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported session log version: " + version);
+            }
+            long count = (length - HEADER_SIZE) / SessionRecord.SIZE;
+            for (long i = 0; i < count; i++) {
+                records.add(SessionRecord.read(in));
+            }
+        } catch (EOFException e) {
+
+            /* The file was cut while it was read, keep what was read*/
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes a summary of the log as CSV, one line for each game version and device class.<br>
+     * Frame times are in microseconds, janks and garbage collections are per minute of play
+     * so that long and short sessions can be compared.
+     *
+     * @param writer Where to write, it isn't closed
+     * @throws IOException If reading the log fails
+     */
+    public void writeSummary(Writer writer) throws IOException {
+
+        /* Group the records, sorted by version then device class*/
+        Map<Long, Summary> summaries = new TreeMap<Long, Summary>();
+        for (SessionRecord record : readAll()) {
+            Long key = ((long) record.getAppVersion() << 8) | record.getDeviceClass();
+            Summary summary = summaries.get(key);
+            if (summary == null) {
+                summary = new Summary();
+                summaries.put(key, summary);
+            }
+            summary.add(record);
+        }
+
+        PrintWriter out = new PrintWriter(writer);
+        out.println("version,device_class,sessions,average_frame_us,average_worst_frame_us,"
+                + "worst_frame_us,janks_per_minute,gcs_per_minute,average_walls,average_score,best_score");
+        for (Map.Entry<Long, Summary> entry : summaries.entrySet()) {
+            Summary summary = entry.getValue();
+            out.print(entry.getKey() >> 8);
+            out.print(',');
+            out.print(entry.getKey() & 0xff);
+            out.print(',');
+            summary.print(out);
+            out.println();
+        }
+        out.flush();
+    }
+
+    /**
+     * The sums of the records of one game version and device class.
+     */
+    private static class Summary {
+
+        private int sessions;
+        private long frames;
+        private long framesTime;        /* Sum of the frame times in microseconds*/
+        private long worstFramesTime;   /* Sum of the worst frame time of each session*/
+        private int worstFrameTime;
+        private long jankFrames;
+        private long duration;          /* Sum of the durations in milliseconds*/
+        private long gcCount;
+        private long gcDuration;        /* Duration of the sessions with a known GC count*/
+        private long walls;
+        private long score;
+        private int bestScore;
+
+        /**
+         * Adds a record to the sums.
+         *
+         * @param record The record
+         */
+        void add(SessionRecord record) {
+            sessions++;
+            frames += record.getFrames();
+            framesTime += (long) record.getAverageFrameTime() * record.getFrames();
+            worstFramesTime += record.getWorstFrameTime();
+            worstFrameTime = Math.max(worstFrameTime, record.getWorstFrameTime());
+            jankFrames += record.getJankFrames();
+            duration += record.getDuration();
+            if (record.getGcCount() != SessionRecord.UNKNOWN) {
+                gcCount += record.getGcCount();
+                gcDuration += record.getDuration();
+            }
+            walls += record.getWalls();
+            score += record.getScore();
+            bestScore = Math.max(bestScore, record.getScore());
+        }
+
+        /**
+         * Prints the sums, from the sessions column.
+         *
+         * @param out Where to print
+         */
+        void print(PrintWriter out) {
+            out.print(sessions);
+            out.print(',');
+            out.print(frames > 0 ? framesTime / frames : 0);
+            out.print(',');
+            out.print(worstFramesTime / sessions);
+            out.print(',');
+            out.print(worstFrameTime);
+            out.print(',');
+            out.print(perMinute(jankFrames, duration));
+            out.print(',');
+            if (gcDuration > 0) {
+                out.print(perMinute(gcCount, gcDuration));
+            }
+            out.print(',');
+            out.print(walls / sessions);
+            out.print(',');
+            out.print(score / sessions);
+            out.print(',');
+            out.print(bestScore);
+        }
+
+        /**
+         * @return A count per minute with two decimals
+         */
+        private static String perMinute(long count, long duration) {
+            if (duration <= 0) {
+                return "0";
+            }
+            long hundredths = count * 60000L * 100 / duration;
+            return hundredths / 100 + "." + (hundredths % 100 < 10 ? "0" : "") + hundredths % 100;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * SessionRecord
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * The SessionRecord is a Class that summarizes the performance of one game session, from the
+ * start of the game until the hero hits a wall.<br><br>
+ *
+ * Records are written in a fixed size ({@link #SIZE} bytes), so that a log of records can be
+ * read without an index and a record cut by a crash is easy to drop.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class SessionRecord {
+
+    /* Device classes*/
+    public static final int DEVICE_LOW = 0;
+    public static final int DEVICE_MID = 1;
+    public static final int DEVICE_HIGH = 2;
+
+    /* The number of bytes of a written record*/
+    public static final int SIZE = 8 + 11 * 4;
+
+    /* The value of an unknown count (e.g. the GC count before Marshmallow)*/
+    public static final int UNKNOWN = -1;
+
+    private final long time;            /* When the session ended, in milliseconds since the epoch*/
+    private final int appVersion;       /* The version code of the game*/
+    private final int sdkVersion;       /* The Android version of the device*/
+    private final int deviceClass;      /* One of the DEVICE_ constants*/
+    private final int duration;         /* The length of the session in milliseconds*/
+    private final int frames;           /* The number of drawn frames*/
+    private final int averageFrameTime; /* The average time between two frames in microseconds*/
+    private final int worstFrameTime;   /* The longest time between two frames in microseconds*/
+    private final int jankFrames;       /* The number of frames that came too late*/
+    private final int gcCount;          /* The number of garbage collections, or UNKNOWN*/
+    private final int walls;            /* The number of generated walls*/
+    private final int score;            /* The final score*/
+
+    /**
+     * Constructs a new record.
+     *
+     * @param time             When the session ended, in milliseconds since the epoch
+     * @param appVersion       The version code of the game
+     * @param sdkVersion       The Android version of the device
+     * @param deviceClass      One of the DEVICE_ constants
+     * @param duration         The length of the session in milliseconds
+     * @param frames           The number of drawn frames
+     * @param averageFrameTime The average time between two frames in microseconds
+     * @param worstFrameTime   The longest time between two frames in microseconds
+     * @param jankFrames       The number of frames that came too late
+     * @param gcCount          The number of garbage collections during the session, or UNKNOWN
+     * @param walls            The number of generated walls
+     * @param score            The final score
+     */
+    public SessionRecord(long time, int appVersion, int sdkVersion, int deviceClass, int duration,
+                         int frames, int averageFrameTime, int worstFrameTime, int jankFrames,
+                         int gcCount, int walls, int score) {
+        this.time = time;
+        this.appVersion = appVersion;
+        this.sdkVersion = sdkVersion;
+        this.deviceClass = deviceClass;
+        this.duration = duration;
+        this.frames = frames;
+        this.averageFrameTime = averageFrameTime;
+        this.worstFrameTime = worstFrameTime;
+        this.jankFrames = jankFrames;
+        this.gcCount = gcCount;
+        this.walls = walls;
+        this.score = score;
+    }
+
+    /**
+     * Classifies a device by the memory available to the game and its number of cores.
+     *
+     * @param memoryClass The heap limit of the game in megabytes
+     * @param cores       The number of processor cores
+     * @param isLowRam    true if the system says it's a low memory device
+     * @return One of the DEVICE_ constants
+     */
+    public static int classifyDevice(int memoryClass, int cores, boolean isLowRam) {
+        if (isLowRam || memoryClass <= 64 || cores <= 2) {
+            return DEVICE_LOW;
+        }
+        if (memoryClass <= 128 || cores <= 4) {
+            return DEVICE_MID;
+        }
+        return DEVICE_HIGH;
+    }
+
+    /**
+     * Writes the record in {@link #SIZE} bytes.
+     *
+     * @param out Where to write
+     * @throws IOException If writing fails
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(time);
+        out.writeInt(appVersion);
+        out.writeInt(sdkVersion);
+        out.writeInt(deviceClass);
+        out.writeInt(duration);
+        out.writeInt(frames);
+        out.writeInt(averageFrameTime);
+        out.writeInt(worstFrameTime);
+        out.writeInt(jankFrames);
+        out.writeInt(gcCount);
+        out.writeInt(walls);
+        out.writeInt(score);
+    }
+
+    /**
+     * Reads a record written by {@link #write(DataOutput)}.
+     *
+     * @param in Where to read from
+     * @return The record
+     * @throws IOException If reading fails
+     */
+    public static SessionRecord read(DataInput in) throws IOException {
+        return new SessionRecord(in.readLong(), in.readInt(), in.readInt(), in.readInt(),
+                in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                in.readInt(), in.readInt(), in.readInt());
+    }
+
+    /**
+     * @return When the session ended, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return The version code of the game
+     */
+    public int getAppVersion() {
+        return appVersion;
+    }
+
+    /**
+     * @return The Android version of the device
+     */
+    public int getSdkVersion() {
+        return sdkVersion;
+    }
+
+    /**
+     * @return One of the DEVICE_ constants
+     */
+    public int getDeviceClass() {
+        return deviceClass;
+    }
+
+    /**
+     * @return The length of the session in milliseconds
+     */
+    public int getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return The number of drawn frames
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return The average time between two frames in microseconds
+     */
+    public int getAverageFrameTime() {
+        return averageFrameTime;
+    }
+
+    /**
+     * @return The longest time between two frames in microseconds
+     */
+    public int getWorstFrameTime() {
+        return worstFrameTime;
+    }
+
+    /**
+     * @return The number of frames that came too late
+     */
+    public int getJankFrames() {
+        return jankFrames;
+    }
+
+    /**
+     * @return The number of garbage collections, or UNKNOWN
+     */
+    public int getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return The number of generated walls
+     */
+    public int getWalls() {
+        return walls;
+    }
+
+    /**
+     * @return The final score
+     */
+    public int getScore() {
+        return score;
+    }
+}
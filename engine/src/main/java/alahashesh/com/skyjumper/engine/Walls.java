@@ -0,0 +1,221 @@
+/*
+ * Walls
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The Walls is a Class that holds all the walls on the screen, every wall has a hole in it.<br>
+ * The hole position is random, it's taken from the generator of the game so that the same
+ * seed always generates the same walls.<br><br>
+ *
+ * The walls are stored in a ring of preallocated slots, one array for each property of a wall.
+ * Walls are added at the bottom and removed from the top, and a removed slot is reused by the
+ * next wall, so adding and moving walls never allocates.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class Walls {
+
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+
+    private final int[] yCoordinate;            /* Wall y coordinate*/
+    private final int[] holeXCoordinate;        /* Hole x coordinate*/
+    private final int[] previousHoleXCoordinate;/* Previous hole x coordinate*/
+    private final int[] direction;              /* The direction that the hole is moving to*/
+    private final int[] unitsToMove;            /* The number of pixels that the hole moves by, 0 if it's not moving*/
+
+    private final int maxX;                     /* Maximum possible hole x coordinate*/
+    private final XorShiftRandom random;        /* Picks the holes positions and directions*/
+
+    private int first;                          /* The slot of the top wall*/
+    private int size;                           /* The number of walls*/
+
+    /**
+     * Constructs an empty ring of walls.
+     *
+     * @param capacity The maximum number of walls on the screen
+     * @param width    Width of the screen minus the hole size
+     * @param random   The generator that picks the holes
+     */
+    public Walls(int capacity, int width, XorShiftRandom random) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        yCoordinate = new int[capacity];
+        holeXCoordinate = new int[capacity];
+        previousHoleXCoordinate = new int[capacity];
+        direction = new int[capacity];
+        unitsToMove = new int[capacity];
+        maxX = width;
+        this.random = random;
+    }
+
+    /**
+     * Removes all the walls.
+     */
+    public void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * Adds a new wall at the bottom. If the ring is full then the top wall is replaced.
+     *
+     * @param y           The y coordinate of the new wall
+     * @param unitsToMove The number of pixels that the hole moves by each tick, 0 for a still hole
+     * @return The slot of the new wall
+     */
+    public int add(int y, int unitsToMove) {
+        if (size == yCoordinate.length) {
+            removeFirst();
+        }
+        int slot = getSlot(size);
+        size++;
+        yCoordinate[slot] = y;
+        holeXCoordinate[slot] = random.nextInt(maxX);
+        previousHoleXCoordinate[slot] = holeXCoordinate[slot];
+        this.unitsToMove[slot] = unitsToMove;
+
+        /* Left or right*/
+        direction[slot] = unitsToMove > 0 ? random.nextInt(2) : LEFT;
+        return slot;
+    }
+
+    /**
+     * Removes the top wall.
+     */
+    public void removeFirst() {
+        if (size == 0) {
+            return;
+        }
+        first = getSlot(1);
+        size--;
+    }
+
+    /**
+     * @return The number of walls
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum number of walls
+     */
+    public int capacity() {
+        return yCoordinate.length;
+    }
+
+    /**
+     * @param index Wall index, 0 is the top wall and size() - 1 is the bottom one
+     * @return The slot of the wall
+     */
+    public int getSlot(int index) {
+        int slot = first + index;
+        return slot < yCoordinate.length ? slot : slot - yCoordinate.length;
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return true if the slot holds a wall, false if it's empty
+     */
+    public boolean contains(int slot) {
+        return (slot - first + yCoordinate.length) % yCoordinate.length < size;
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return Wall y coordinate
+     */
+    public int getYCoordinate(int slot) {
+        return yCoordinate[slot];
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return Hole x coordinate after moving the hole
+     */
+    public int getHoleCoordinate(int slot) {
+        return holeXCoordinate[slot];
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return Hole x coordinate without moving the hole
+     */
+    public int getPreviousHoleXCoordinate(int slot) {
+        return previousHoleXCoordinate[slot];
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return The type of the wall (i.e. moving wall or not)
+     */
+    public boolean isMovingWall(int slot) {
+        return unitsToMove[slot] > 0;
+    }
+
+    /**
+     * Moves every wall up and updates the holes positions if they are moving.
+     *
+     * @param units The number of pixels that the walls move up by
+     */
+    public void move(int units) {
+        for (int i = 0, slot = first; i < size; i++, slot = nextSlot(slot)) {
+            yCoordinate[slot] -= units;
+            previousHoleXCoordinate[slot] = holeXCoordinate[slot];
+            if (unitsToMove[slot] > 0) {
+                moveHole(slot);
+            }
+        }
+    }
+
+    /**
+     * Undo the last holes move.
+     */
+    public void fixHoleCoordinates() {
+        for (int i = 0, slot = first; i < size; i++, slot = nextSlot(slot)) {
+            holeXCoordinate[slot] = previousHoleXCoordinate[slot];
+        }
+    }
+
+    /**
+     * @param slot Wall slot
+     * @return The slot after it in the ring
+     */
+    private int nextSlot(int slot) {
+        return slot + 1 < yCoordinate.length ? slot + 1 : 0;
+    }
+
+    /**
+     * Move the hole of a wall.
+     *
+     * @param slot Wall slot
+     */
+    private void moveHole(int slot) {
+        int units = unitsToMove[slot];
+        if (direction[slot] == RIGHT) {
+            holeXCoordinate[slot] += units;
+            if (holeXCoordinate[slot] > maxX) {
+                direction[slot] = LEFT;
+                holeXCoordinate[slot] -= units;
+            }
+        } else {
+            holeXCoordinate[slot] -= units;
+            if (holeXCoordinate[slot] < 0) {
+                direction[slot] = RIGHT;
+                holeXCoordinate[slot] += units;
+            }
+        }
+    }
+}
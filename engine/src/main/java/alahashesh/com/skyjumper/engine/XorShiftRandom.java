@@ -0,0 +1,84 @@
+/*
+ * XorShiftRandom
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+/**
+ * The XorShiftRandom is a Class that generates pseudo random numbers using xorshift64*.<br>
+ * The same seed always generates the same numbers, so a game can be played again exactly
+ * from its seed. Unlike java.util.Random it's not thread safe, it's meant to be owned by
+ * the thread that runs the game.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class XorShiftRandom {
+
+    private long state;     /* Never 0, xorshift would only generate zeros*/
+    private long seed;      /* The seed that generated the current sequence*/
+
+    /**
+     * Constructs a new generator.
+     *
+     * @param seed The seed, any value is allowed
+     */
+    public XorShiftRandom(long seed) {
+        setSeed(seed);
+    }
+
+    /**
+     * Restarts the sequence.
+     *
+     * @param seed The seed, any value is allowed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+
+        /* Spread the bits of the seed (splitmix64), so that close seeds generate different sequences*/
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        state = z != 0 ? z : 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * @return The seed that generated the current sequence
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The next pseudo random 64 bits
+     */
+    public long nextLong() {
+        long x = state;
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+        state = x;
+        return x * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * @param bound The upper bound (exclusive), must be positive
+     * @return A pseudo random number between 0 (inclusive) and bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("bound must be positive: " + bound);
+        }
+
+        /* Scale the top 31 bits into the range instead of using %, which favours small numbers*/
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+}
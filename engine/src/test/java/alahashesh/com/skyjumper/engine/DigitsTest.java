@@ -0,0 +1,53 @@
+/*
+ * DigitsTest
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the {@link Digits} of numbers against their decimal strings.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class DigitsTest {
+
+    private static final int[] WIDTHS = {56, 41, 54, 55, 57, 55, 56, 50, 56, 56};
+    private static final int[] VALUES = {0, 7, 10, 99, 100, 1234, 90210, Integer.MAX_VALUE};
+
+    @Test
+    public void splitsTheLastDigitFirst() {
+        int[] digits = new int[Digits.MAX_DIGITS];
+        for (int value : VALUES) {
+            String text = String.valueOf(value);
+            int count = Digits.split(value, digits);
+            assertEquals(text.length(), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals(text.charAt(count - 1 - i) - '0', digits[i]);
+            }
+        }
+    }
+
+    @Test
+    public void measuresTheSumOfTheDigitWidths() {
+        for (int value : VALUES) {
+            String text = String.valueOf(value);
+            int width = 0;
+            for (int i = 0; i < text.length(); i++) {
+                width += WIDTHS[text.charAt(i) - '0'];
+            }
+            assertEquals(width, Digits.measure(value, WIDTHS));
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * GameWorldTest
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the {@link GameWorld} collisions: the wall hit check against the pixels of the sprites,
+ * and the sweep of the hero along each tick.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class GameWorldTest {
+
+    /* A 1080x1920 screen at density 3*/
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final float DENSITY = 3;
+
+    /* The default speeds without moving holes, so that a hero that doesn't move fits a hole
+     * for the whole time that it's passing it, or never
+     */
+    private static final DifficultyProfile NO_MOVING_HOLES = new DifficultyProfile(5,
+            new int[]{0, 30, 100},
+            new float[]{7, 8, 9},
+            new float[]{5, 6, 7},
+            new float[]{1, 1, 1},
+            new int[]{1000000, 1000000, 1000000});
+
+    private static final int GAMES = 50;
+    private static final int MAX_TICKS = 100000;
+
+    /* The number of random placements of each wall hit check*/
+    private static final int PLACEMENTS = 20000;
+
+    @Test
+    public void wallHitMatchesThePixelsWithOpaqueSprites() {
+        checkWallHit(new GameWorld(720, 1280, 2, FixedTimestep.DEFAULT_TICK_RATE), new Random(1));
+        checkWallHit(new GameWorld(WIDTH, HEIGHT, DENSITY, FixedTimestep.DEFAULT_TICK_RATE), new Random(2));
+    }
+
+    @Test
+    public void wallHitMatchesThePixelsWithTexturedSprites() {
+        Random random = new Random(3);
+        GameWorld world = new GameWorld(WIDTH, HEIGHT, DENSITY, FixedTimestep.DEFAULT_TICK_RATE);
+        int heroWidth = world.getHeroWidth();
+        int heroHeight = world.getHeroHeight();
+        for (int direction = 0; direction < 3; direction++) {
+            world.setHeroPixels(direction, ellipse(heroWidth, heroHeight, direction));
+        }
+        world.setWallPixels(GameWorld.WALL_LEFT, holes(WIDTH, world.getWallThickness(), random));
+        world.setWallPixels(GameWorld.WALL_RIGHT, holes(WIDTH, world.getWallThickness(), random));
+        checkWallHit(world, random);
+    }
+
+    @Test
+    public void stillHeroHitsTheFirstClosedWallAtTwoTicksPerSecond() {
+        checkStillHero(2);
+    }
+
+    @Test
+    public void stillHeroHitsTheFirstClosedWallAtFifteenTicksPerSecond() {
+        checkStillHero(15);
+    }
+
+    @Test
+    public void stillHeroHitsTheFirstClosedWallAtSixtyTicksPerSecond() {
+        checkStillHero(60);
+    }
+
+    /**
+     * Plays games where the hero never moves. At low tick rates the walls move further than
+     * the hero height in one tick, so only the sweep along the tick catches the hits.<br>
+     * Every passed wall must have had a hole around the hero, the game must be lost at the first
+     * wall that doesn't, and the hero must end up touching that wall without sinking into it.
+     *
+     * @param tickRate Simulation ticks per second
+     */
+    private static void checkStillHero(int tickRate) {
+        GameWorld world = new GameWorld(WIDTH, HEIGHT, DENSITY, tickRate, NO_MOVING_HOLES);
+        for (int game = 0; game < GAMES; game++) {
+            world.restart(1000 + game);
+            world.setDirection(GameWorld.DOWN);
+            int x = world.getX();
+            while (!world.isLost() && world.getTicks() < MAX_TICKS) {
+                int slot = world.getTopWallSlot();
+                boolean isOpen = slot >= 0 && isInHole(world, x, world.getWalls().getHoleCoordinate(slot));
+                int score = world.getScore();
+                world.tick();
+                if (world.getScore() > score) {
+                    assertTrue("Game " + game + " passed a closed wall at tick " + world.getTicks(), isOpen);
+                }
+            }
+            assertTrue("Game " + game + " wasn't lost", world.isLost());
+            assertEquals(x, world.getX());
+
+            Walls walls = world.getWalls();
+            int slot = world.getTopWallSlot();
+            int wallY = walls.getYCoordinate(slot);
+            int holeX = walls.getHoleCoordinate(slot);
+            assertFalse("Game " + game + " was lost at an open wall", isInHole(world, x, holeX));
+
+            /* Touching is the first position that hits, as the hero is moved to contact:
+             * its lowest row is on the wall, and one pixel back it's clear of it
+             */
+            assertTrue("Game " + game + " ended away from the wall", world.isWallHit(wallY, holeX));
+            assertFalse("Game " + game + " ended inside the wall", world.isWallHit(wallY + 1, holeX));
+        }
+    }
+
+    /**
+     * Places the hero and a wall around each other at random, and compares
+     * {@link GameWorld#isWallHit(int, int)} with a check of every pixel of the hero.
+     *
+     * @param world  The world, with the masks to check
+     * @param random Where the placements come from
+     */
+    private static void checkWallHit(GameWorld world, Random random) {
+        int width = world.getWidth();
+        int heroWidth = world.getHeroWidth();
+        int heroHeight = world.getHeroHeight();
+        int thickness = world.getWallThickness();
+        int holeSize = world.getHoleSize();
+        CollisionMask left = world.getWallMask(GameWorld.WALL_LEFT);
+        CollisionMask right = world.getWallMask(GameWorld.WALL_RIGHT);
+        int hits = 0;
+        for (int i = 0; i < PLACEMENTS; i++) {
+            int direction = random.nextInt(3);
+            int heroX = random.nextInt(width - heroWidth + 1);
+            int heroY = heroHeight + thickness;
+            int holeX = random.nextInt(width - holeSize + 1);
+
+            /* Half of the placements put the hole around the hero, where the early outs are*/
+            if (random.nextBoolean()) {
+                holeX = Math.max(0, Math.min(width - holeSize,
+                        heroX - holeSize / 2 + random.nextInt(holeSize)));
+            }
+            int wallY = heroY - thickness - 2 + random.nextInt(heroHeight + thickness + 4);
+            world.placeHero(heroX, heroY, direction);
+
+            CollisionMask hero = world.getHeroMask(direction);
+            boolean isHit = false;
+            for (int row = 0; row < heroHeight && !isHit; row++) {
+                int wallRow = heroY + row - wallY;
+                if (wallRow < 0 || wallRow >= thickness) {
+                    continue;
+                }
+                for (int column = 0; column < heroWidth && !isHit; column++) {
+                    int x = heroX + column;
+                    isHit = hero.isOpaque(column, row)
+                            && (left.isOpaque(x - (holeX - width), wallRow)
+                            || right.isOpaque(x - (holeX + holeSize), wallRow));
+                }
+            }
+            if (isHit) {
+                hits++;
+            }
+            assertEquals("Hero at " + heroX + "," + heroY + " facing " + direction + ", wall at " + wallY
+                    + " with the hole at " + holeX, isHit, world.isWallHit(wallY, holeX));
+        }
+
+        /* Both outcomes must be checked often*/
+        assertTrue(hits > PLACEMENTS / 10 && hits < PLACEMENTS * 9 / 10);
+    }
+
+    /**
+     * @return The pixels of an ellipse that fills the sprite, shifted towards a direction
+     */
+    private static int[] ellipse(int width, int height, int direction) {
+        int[] pixels = new int[width * height];
+        float centerX = width / 2f + (direction == GameWorld.LEFT ? -1 : direction == GameWorld.RIGHT ? 1 : 0);
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                float dx = (j + 0.5f - centerX) / (width / 2f);
+                float dy = (i + 0.5f - height / 2f) / (height / 2f);
+                pixels[i * width + j] = dx * dx + dy * dy <= 1 ? 0xff000000 : 0;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return The pixels of a wall that has a fifth of its pixels transparent
+     */
+    private static int[] holes(int width, int height, Random random) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt(5) == 0 ? 0 : 0xff000000;
+        }
+        return pixels;
+    }
+
+    /**
+     * @return true if every column of the (fully opaque) hero is inside the hole
+     */
+    private static boolean isInHole(GameWorld world, int x, int holeX) {
+        return holeX <= x && x + world.getHeroWidth() <= holeX + world.getHoleSize();
+    }
+}
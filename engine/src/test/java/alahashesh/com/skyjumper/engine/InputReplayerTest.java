@@ -0,0 +1,185 @@
+/*
+ * InputReplayerTest
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Round trips of games recorded by the {@link InputRecorder} and played again by the
+ * {@link InputReplayer}, with sprites and a difficulty profile that aren't the defaults.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class InputReplayerTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final float DENSITY = 3;
+    private static final int TICK_RATE = 60;
+
+    /* The hero is steered to the holes for this many ticks, then it falls*/
+    private static final int STEERED_TICKS = 3000;
+
+    private static final DifficultyProfile PROFILE = new DifficultyProfile(4,
+            new int[]{0, 5, 6},
+            new float[]{6, 6, 8},
+            new float[]{4, 4, 6},
+            new float[]{1, 1, 2},
+            new int[]{3, 3, 2});
+
+    private GameWorld world;
+    private byte[] log;
+
+    @Before
+    public void setUp() throws IOException {
+        world = new GameWorld(WIDTH, HEIGHT, DENSITY, TICK_RATE, PROFILE);
+        setSprites(world, 0);
+        InputRecorder recorder = new InputRecorder();
+        world.setRecorder(recorder);
+        world.restart(42);
+        while (!world.isLost()) {
+            world.setDirection(world.getTicks() < STEERED_TICKS ? steer(world) : GameWorld.DOWN);
+            world.tick();
+        }
+        assertTrue(recorder.isFinished());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        log = out.toByteArray();
+    }
+
+    @Test
+    public void replaysOnTheRecordedWorld() {
+        InputReplayer replayer = new InputReplayer(log);
+        assertEquals(world.getScore(), replayer.getRecordedScore());
+        assertEquals(world.getTicks(), replayer.getRecordedTicks());
+        assertTrue("The game should pass some walls", replayer.getRecordedScore() > 5);
+
+        GameWorld replayWorld = replayer.newWorld();
+        assertEquals(replayer.getRecordedScore(), replayer.replay(replayWorld));
+        assertTrue(replayer.matches(replayWorld));
+
+        /* Replaying again gives the same game*/
+        replayer.replay(replayWorld);
+        assertTrue(replayer.matches(replayWorld));
+    }
+
+    @Test
+    public void rebuildsTheRecordedWorld() {
+        GameWorld replayWorld = new InputReplayer(log).newWorld();
+        assertEquals(world.getHoleSize(), replayWorld.getHoleSize());
+        assertEquals(PROFILE.getLastScore(), replayWorld.getDifficultyProfile().getLastScore());
+        for (int direction = 0; direction < 3; direction++) {
+            assertSameMask(world.getHeroMask(direction), replayWorld.getHeroMask(direction));
+        }
+        assertSameMask(world.getWallMask(GameWorld.WALL_LEFT), replayWorld.getWallMask(GameWorld.WALL_LEFT));
+        assertSameMask(world.getWallMask(GameWorld.WALL_RIGHT), replayWorld.getWallMask(GameWorld.WALL_RIGHT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsOtherMasks() {
+        InputReplayer replayer = new InputReplayer(log);
+        GameWorld other = replayer.newWorld();
+        setSprites(other, 1);
+        replayer.replay(other);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnotherProfile() {
+        GameWorld other = new GameWorld(WIDTH, HEIGHT, DENSITY, TICK_RATE);
+        setSprites(other, 0);
+        new InputReplayer(log).replay(other);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAnotherTickRate() {
+        GameWorld other = new GameWorld(WIDTH, HEIGHT, DENSITY, TICK_RATE * 2, PROFILE);
+        setSprites(other, 0);
+        new InputReplayer(log).replay(other);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTheDefaultSprites() {
+        new InputReplayer(log).replay(new GameWorld(WIDTH, HEIGHT, DENSITY, TICK_RATE, PROFILE));
+    }
+
+    /**
+     * Sets elliptic hero sprites and walls with round edges.
+     *
+     * @param world  The world
+     * @param offset Moves the hero ellipse sideways, so that different sprites can be set
+     */
+    private static void setSprites(GameWorld world, int offset) {
+        int heroWidth = world.getHeroWidth();
+        int heroHeight = world.getHeroHeight();
+        int[] hero = new int[heroWidth * heroHeight];
+        for (int i = 0; i < heroHeight; i++) {
+            for (int j = 0; j < heroWidth; j++) {
+                float dx = (j + 0.5f - heroWidth / 2f - offset) / (heroWidth / 2f);
+                float dy = (i + 0.5f - heroHeight / 2f) / (heroHeight / 2f);
+                hero[i * heroWidth + j] = dx * dx + dy * dy <= 1 ? 0xff000000 : 0;
+            }
+        }
+        for (int direction = 0; direction < 3; direction++) {
+            world.setHeroPixels(direction, hero);
+        }
+
+        /* The corners of the wall ends are cut*/
+        int thickness = world.getWallThickness();
+        int[] left = new int[WIDTH * thickness];
+        int[] right = new int[WIDTH * thickness];
+        for (int i = 0; i < thickness; i++) {
+            int cut = Math.abs(i - thickness / 2) * 2;
+            for (int j = 0; j < WIDTH; j++) {
+                left[i * WIDTH + j] = j < WIDTH - cut ? 0xff000000 : 0;
+                right[i * WIDTH + j] = j >= cut ? 0xff000000 : 0;
+            }
+        }
+        world.setWallPixels(GameWorld.WALL_LEFT, left);
+        world.setWallPixels(GameWorld.WALL_RIGHT, right);
+    }
+
+    /**
+     * @return The direction that takes the hero to the middle of the hole of the top wall
+     */
+    private static int steer(GameWorld world) {
+        int slot = world.getTopWallSlot();
+        if (slot < 0) {
+            return GameWorld.DOWN;
+        }
+        int hole = world.getWalls().getHoleCoordinate(slot) + world.getHoleSize() / 2;
+        int hero = world.getX() + world.getHeroWidth() / 2;
+        if (hero < hole - world.getHeroSpeed()) {
+            return GameWorld.RIGHT;
+        } else if (hero > hole + world.getHeroSpeed()) {
+            return GameWorld.LEFT;
+        }
+        return GameWorld.DOWN;
+    }
+
+    private static void assertSameMask(CollisionMask expected, CollisionMask actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int row = 0; row < expected.getHeight(); row++) {
+            for (int column = 0; column < expected.getWidth(); column += 64) {
+                assertEquals(expected.getBits(row, column), actual.getBits(row, column));
+            }
+        }
+    }
+}
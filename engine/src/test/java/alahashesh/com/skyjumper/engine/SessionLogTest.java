@@ -0,0 +1,111 @@
+/*
+ * SessionLogTest
+ *
+ * v1.0
+ *
+ * 2015-08-30
+ *
+ * Copyright 2015 Ala' Hashesh
+ * you may not use this file except in compliance with the author.
+ */
+package alahashesh.com.skyjumper.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Round trips of the {@link SessionLog}, including files that were cut while a record was written.
+ *
+ * @author Ala' Hashesh
+ * @version 1.0
+ * @since 2015-08-30
+ */
+public class SessionLogTest {
+
+    private static final int MAX_BYTES = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readsWhatWasAppended() throws IOException {
+        SessionLog log = new SessionLog(folder.newFile("sessions"), MAX_BYTES);
+        log.append(newRecord(1));
+        log.append(newRecord(2));
+        assertScores(log.readAll(), 1, 2);
+    }
+
+    @Test
+    public void appendsAfterACutRecord() throws IOException {
+        File file = folder.newFile("sessions");
+        SessionLog log = new SessionLog(file, MAX_BYTES);
+        log.append(newRecord(1));
+        log.append(newRecord(2));
+        cut(file, 10);
+        assertScores(log.readAll(), 1);
+
+        log.append(newRecord(3));
+        log.append(newRecord(4));
+        List<SessionRecord> records = log.readAll();
+        assertScores(records, 1, 3, 4);
+        assertEquals(3000, records.get(1).getTime());
+        assertEquals(7, records.get(2).getAppVersion());
+    }
+
+    @Test
+    public void appendsAfterACutHeader() throws IOException {
+        File file = folder.newFile("sessions");
+        SessionLog log = new SessionLog(file, MAX_BYTES);
+        log.append(newRecord(1));
+        cut(file, SessionRecord.SIZE + 1);
+
+        log.append(newRecord(2));
+        assertScores(log.readAll(), 2);
+    }
+
+    @Test
+    public void keepsTheFullFileAsBackup() throws IOException {
+        File file = folder.newFile("sessions");
+        SessionLog log = new SessionLog(file, 3 + 2 * SessionRecord.SIZE);
+        log.append(newRecord(1));
+        log.append(newRecord(2));
+        log.append(newRecord(3));
+        assertScores(log.readAll(), 1, 2, 3);
+    }
+
+    /**
+     * @param score The score of the record, the other values are derived from it
+     * @return A record
+     */
+    private static SessionRecord newRecord(int score) {
+        return new SessionRecord(score * 1000L, 7, 23, SessionRecord.DEVICE_MID, 60000,
+                3600, 16666, 40000, 2, SessionRecord.UNKNOWN, score * 5, score);
+    }
+
+    /**
+     * Removes bytes from the end of a file, as if the game was killed while writing them.
+     */
+    private static void cut(File file, int bytes) throws IOException {
+        RandomAccessFile out = new RandomAccessFile(file, "rw");
+        try {
+            out.setLength(out.length() - bytes);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void assertScores(List<SessionRecord> records, int... scores) {
+        assertEquals(scores.length, records.size());
+        for (int i = 0; i < scores.length; i++) {
+            assertEquals(scores[i], records.get(i).getScore());
+        }
+    }
+}